@@ -0,0 +1,29 @@
+package annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Handles the callback queries of inline keyboard buttons whose callback data starts with a prefix,
+ * such as {@code "page:"} for the buttons of a pagination keyboard. When several prefixes match,
+ * the longest one wins.
+ *
+ * <p>The rest of the callback data is split at {@code ':'} into parameters, which are passed in order to
+ * the method's {@link String}, {@link Integer} and {@link Long} parameters after the chat and user IDs;
+ * missing or malformed parameters are passed as {@code null}. For example, a button with the data
+ * {@code "vote:12:up"} calls {@code vote(Long chatId, Long userId, Integer pollId, String choice)} of a
+ * handler for {@code "vote:"}. A {@code CallbackQuery} parameter receives the query itself; handlers without
+ * one have their query answered automatically once they return.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CallbackHandler {
+    /**
+     * The prefix of the callback data (e.g., "page:").
+     *
+     * @return the callback data prefix
+     */
+    String value();
+}
@@ -6,16 +6,65 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Defines a scheduled task that runs at specified intervals.
+ * Defines a scheduled task that runs at specified intervals or on a cron schedule.
  * This annotation can be used to schedule periodic tasks in the bot.
+ *
+ * <p>Bots that share a schedule would all call the Telegram API in the same second. {@link #jitterSeconds()}
+ * shifts every run by a random delay and {@link #spread()} paces the chats of a run over its time budget
+ * instead of sending to all of them at once.</p>
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface ScheduledTask {
     /**
-     * The interval in seconds between task executions.
+     * The interval in seconds between task executions. Either this or {@link #cron()} must be set.
      *
      * @return the interval in seconds
      */
-    int intervalSeconds();
+    int intervalSeconds() default 0;
+
+    /**
+     * A five-field cron expression such as {@code "0 9 * * MON-FRI"}, used instead of the interval.
+     * See {@link utils.CronExpression} for the supported syntax.
+     *
+     * @return the cron expression, or an empty string to use the interval
+     */
+    String cron() default "";
+
+    /**
+     * The time zone the cron expression is evaluated in, such as {@code "Europe/Berlin"}.
+     *
+     * @return the zone ID, or an empty string for the system default zone
+     */
+    String zone() default "";
+
+    /**
+     * The delay in seconds before the first run of an interval task.
+     *
+     * @return the initial delay in seconds
+     */
+    int initialDelaySeconds() default 0;
+
+    /**
+     * The largest random delay in seconds added to each run. Every run draws its own delay, and the schedule
+     * itself does not drift.
+     *
+     * @return the maximum jitter in seconds
+     */
+    int jitterSeconds() default 0;
+
+    /**
+     * Whether the chats of a run are paced evenly over its time budget instead of all being sent to at the start.
+     *
+     * @return {@code true} to spread the run
+     */
+    boolean spread() default false;
+
+    /**
+     * The longest time in seconds a single run may take. Chats not reached by then are skipped until the next run.
+     * {@code 0} uses the time until the next run, so a run never overlaps the next one.
+     *
+     * @return the time budget in seconds
+     */
+    int timeBudgetSeconds() default 0;
 }
@@ -0,0 +1,137 @@
+package bot;
+
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import service.*;
+import utils.VirtualThreads;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The services behind a bot, wired from its {@link JBotLibOptions}.
+ * Shared by the long polling {@link JBotLib} and the webhook {@link JBotLibWebhook}, which differ only in
+ * how updates arrive.
+ */
+final class BotServices {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final int TIMER_WHEEL_SIZE = 4096;
+
+    final AnnotationService annotationService;
+    final ChatService chatService;
+    final EventLogger eventLogger;
+    final KeyboardBuilder keyboardBuilder;
+    final MessageService messageService;
+    final UpdateDispatcher updateDispatcher;
+    final OutboundScheduler outboundScheduler;
+    final UpdateCheckpoint updateCheckpoint;
+    final ActiveChatRegistry activeChats;
+    final TimerService timerService;
+    final DelayedActionStore delayedActions;
+    private final ExecutorService timerExecutor;
+
+    /**
+     * Creates the services of the given bot.
+     *
+     * @param bot         The bot, which sends the API requests and declares the annotated handlers.
+     * @param options     The options of the bot.
+     * @param eventLogger The EventLogger instance used by the bot and its services.
+     * @throws UnsupportedOperationException If {@link ExecutionMode#VIRTUAL} is requested on a JVM without virtual threads.
+     */
+    BotServices(DefaultAbsSender bot, JBotLibOptions options, EventLogger eventLogger) {
+        boolean virtual = options.getExecutionMode() == ExecutionMode.VIRTUAL;
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("ExecutionMode.VIRTUAL requires Java 21 or newer");
+        }
+
+        this.eventLogger = eventLogger;
+        this.timerExecutor = virtual ? VirtualThreads.newPerTaskExecutor("jbotlib-timer-")
+                : Executors.newFixedThreadPool(options.getTimerThreads());
+        this.timerService = new TimerService(options.getTimerTickDuration(), TIMER_WHEEL_SIZE, timerExecutor, eventLogger);
+        this.delayedActions = new DelayedActionStore(timerService,
+                options.getDelayedActionsFile() != null ? Path.of(options.getDelayedActionsFile()) : null,
+                options.getDelayedActionsSyncInterval());
+        this.chatService = new ChatService(bot, options.isMemberCacheEnabled()
+                ? new ChatMemberCache(options.getMemberCacheTtl(), options.getMemberCacheNegativeTtl(),
+                options.getMemberCacheMaxSize())
+                : null, delayedActions);
+        this.outboundScheduler = options.isRateLimitingEnabled()
+                ? new OutboundScheduler(options.getGlobalMessagesPerSecond(), options.getPrivateChatMessagesPerSecond(),
+                options.getGroupMessagesPerMinute(), options.getOutboundMaxRetries(),
+                virtual ? VirtualThreads.newPerTaskExecutor("jbotlib-outbound-")
+                        : Executors.newFixedThreadPool(options.getOutboundSenderThreads()))
+                : null;
+        this.keyboardBuilder = new KeyboardBuilder(bot, outboundScheduler);
+        this.messageService = new MessageService(bot, outboundScheduler, OutboundScheduler.Priority.INTERACTIVE,
+                timerService, delayedActions);
+        delayedActions.registerAsync(DelayedActionStore.Kind.DELETE_MESSAGE,
+                action -> messageService.deleteMessageAsync(action.chatId(), (int) action.target()));
+        delayedActions.registerAsync(DelayedActionStore.Kind.SEND_MESSAGE,
+                action -> messageService.sendMessageAsync(action.chatId(), action.text()));
+        delayedActions.register(DelayedActionStore.Kind.UNRESTRICT_MEMBER,
+                action -> chatService.unrestrictChatMember(action.target(), action.text()));
+        delayedActions.start();
+
+        ExecutorService taskExecutor = virtual ? VirtualThreads.newPerTaskExecutor("jbotlib-task-") : null;
+        this.activeChats = new ActiveChatRegistry(options.getActiveChatsMaxSize(), options.getActiveChatTtl(),
+                options.getActiveChatsFile() != null ? Path.of(options.getActiveChatsFile()) : null,
+                options.getActiveChatsSaveInterval());
+        this.annotationService = new AnnotationService(bot, messageService, keyboardBuilder, chatService,
+                eventLogger, taskExecutor, activeChats, options.getScheduledTaskParallelism());
+        UpdateDeduplicator deduplicator = options.isDeduplicationEnabled()
+                ? new UpdateDeduplicator(options.getDeduplicationWindow())
+                : null;
+        this.updateCheckpoint = options.getCheckpointFile() != null
+                ? new UpdateCheckpoint(Path.of(options.getCheckpointFile()), options.getCheckpointInterval())
+                : null;
+        if (updateCheckpoint != null && deduplicator != null) {
+            updateCheckpoint.savedUpdateId().ifPresent(deduplicator::seedProcessedUpTo);
+        }
+        this.updateDispatcher = new UpdateDispatcher(annotationService, eventLogger, options.getDispatchParallelism(),
+                options.getDispatchQueueCapacity(), virtual ? VirtualThreads.factory("jbotlib-dispatch-") : Thread::new,
+                deduplicator, updateCheckpoint);
+
+        if (options.isAllowedUpdatesFromHandlers() && options.getAllowedUpdates() == null) {
+            List<String> handled = annotationService.handledUpdateTypes();
+            if (!handled.isEmpty()) {
+                options.setAllowedUpdates(handled);
+            }
+        }
+    }
+
+    /**
+     * Resolves and caches the bot's own user, so the first admin check does not pay for it.
+     * If this fails, the user is resolved on first use instead.
+     */
+    void resolveBotUser() {
+        try {
+            chatService.refreshBotUser();
+        } catch (Exception e) {
+            eventLogger.logWarning("Could not resolve bot user: " + e.getMessage(), "bot_register");
+        }
+    }
+
+    /**
+     * Stops the dispatcher, scheduled tasks, timers and outbound scheduler, letting updates already queued
+     * finish first, saves the update checkpoint, active chats and delayed actions and closes the event log.
+     */
+    void shutdown() {
+        if (!updateDispatcher.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            eventLogger.logWarning("Pending updates were not processed before shutdown", "bot_closing");
+        }
+        if (updateCheckpoint != null) {
+            updateCheckpoint.close();
+        }
+        annotationService.shutdown();
+        timerService.shutdown();
+        timerExecutor.shutdown();
+        delayedActions.close();
+        activeChats.close();
+        if (outboundScheduler != null) {
+            outboundScheduler.shutdown();
+        }
+        eventLogger.close();
+    }
+}
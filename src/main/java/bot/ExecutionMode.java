@@ -0,0 +1,18 @@
+package bot;
+
+/**
+ * Defines which kind of threads run a bot's handlers and scheduled tasks.
+ */
+public enum ExecutionMode {
+    /**
+     * Handlers run on a fixed pool of platform threads, one per dispatch worker.
+     */
+    PLATFORM,
+
+    /**
+     * Every dispatch worker and every {@link annotations.ScheduledTask} invocation runs on a virtual thread,
+     * so blocking Telegram API calls do not tie up platform threads. Requires Java 21 or newer
+     * and the multi-release jar built with the {@code jdk21} profile.
+     */
+    VIRTUAL
+}
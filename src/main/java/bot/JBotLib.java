@@ -1,12 +1,22 @@
 package bot;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.objects.Update;
 import service.*;
 
+import java.util.List;
+
 /**
  * Abstract base class for creating Telegram bots using the JBotLib library.
  * Extends TelegramLongPollingBot to provide additional functionality for bot development.
+ *
+ * <p>Incoming updates are handed to an {@link UpdateDispatcher}, which runs the bot's annotated
+ * handlers concurrently across chats while keeping updates from the same chat in order.</p>
+ *
+ * <p>Register the bot with a {@link JBotLibSession} to fetch the next batch of updates while the current one
+ * is dispatched. To receive updates through a webhook instead of long polling, extend {@link JBotLibWebhook}.</p>
  */
 @Getter
 public abstract class JBotLib extends TelegramLongPollingBot {
@@ -15,13 +25,94 @@ public abstract class JBotLib extends TelegramLongPollingBot {
     private final EventLogger eventLogger;
     private final KeyboardBuilder keyboardBuilder;
     private final MessageService messageService;
+    private final UpdateDispatcher updateDispatcher;
+    private final OutboundScheduler outboundScheduler;
+    private final UpdateCheckpoint updateCheckpoint;
+    private final DelayedActionStore delayedActions;
+    @Getter(AccessLevel.NONE)
+    private final BotServices services;
+
+    /**
+     * Constructs a new bot with default options.
+     *
+     * @param botToken The token of the bot.
+     */
+    protected JBotLib(String botToken) {
+        this(new JBotLibOptions(), botToken);
+    }
+
+    /**
+     * Constructs a new bot with the given options.
+     *
+     * @param options  The options of the bot.
+     * @param botToken The token of the bot.
+     */
+    protected JBotLib(JBotLibOptions options, String botToken) {
+        this(options, botToken, new EventLogger());
+    }
+
+    /**
+     * Constructs a new bot with the given options and event logger.
+     *
+     * @param options     The options of the bot.
+     * @param botToken    The token of the bot.
+     * @param eventLogger The EventLogger instance used by the bot and its services.
+     * @throws UnsupportedOperationException If {@link ExecutionMode#VIRTUAL} is requested on a JVM without virtual threads.
+     */
+    protected JBotLib(JBotLibOptions options, String botToken, EventLogger eventLogger) {
+        super(options, botToken);
+        BotServices services = new BotServices(this, options, eventLogger);
+        this.services = services;
+        this.eventLogger = services.eventLogger;
+        this.keyboardBuilder = services.keyboardBuilder;
+        this.chatService = services.chatService;
+        this.outboundScheduler = services.outboundScheduler;
+        this.messageService = services.messageService;
+        this.annotationService = services.annotationService;
+        this.updateDispatcher = services.updateDispatcher;
+        this.updateCheckpoint = services.updateCheckpoint;
+        this.delayedActions = services.delayedActions;
+    }
+
+    /**
+     * Resolves and caches the bot's own user as soon as the bot is registered, so the first
+     * admin check does not pay for it. If this fails, the user is resolved on first use instead.
+     */
+    @Override
+    public void onRegister() {
+        super.onRegister();
+        services.resolveBotUser();
+    }
 
+    /**
+     * Hands the update to the {@link UpdateDispatcher}, which processes it asynchronously.
+     *
+     * @param update The Telegram update received.
+     */
+    @Override
+    public void onUpdateReceived(Update update) {
+        updateDispatcher.dispatch(update);
+    }
+
+    /**
+     * Hands a batch of updates to the {@link UpdateDispatcher} in the order they were received.
+     *
+     * @param updates The Telegram updates received.
+     */
+    @Override
+    public void onUpdatesReceived(List<Update> updates) {
+        for (Update update : updates) {
+            onUpdateReceived(update);
+        }
+    }
 
-    private JBotLib(AnnotationService annotationService, EventLogger eventLogger) {
-        this.annotationService = annotationService;
-        this.eventLogger = eventLogger;
-        this.keyboardBuilder = new KeyboardBuilder(this);
-        this.chatService = new ChatService(this);
-        this.messageService = new MessageService(this);
+    /**
+     * Stops the dispatcher, scheduled tasks and outbound scheduler, letting updates already queued finish first,
+     * and closes the event log.
+     */
+    @Override
+    public void onClosing() {
+        services.shutdown();
+        super.onClosing();
     }
 }
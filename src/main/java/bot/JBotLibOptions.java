@@ -0,0 +1,179 @@
+package bot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+import java.time.Duration;
+
+/**
+ * Configuration options for bots built on {@link JBotLib}.
+ * Extends the Telegram library's {@link DefaultBotOptions}, so connection and polling settings
+ * are configured the same way, and adds the settings of JBotLib's own services.
+ */
+@Getter
+@Setter
+public class JBotLibOptions extends DefaultBotOptions {
+    /**
+     * The number of updates dispatched concurrently. Updates from the same chat are always
+     * handled one at a time and in the order they were received.
+     */
+    private int dispatchParallelism = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * The number of updates each dispatch worker may have waiting before the poller is blocked.
+     */
+    private int dispatchQueueCapacity = 1_000;
+
+    /**
+     * Whether updates whose {@code update_id} was already dispatched are dropped, so a redelivered update
+     * does not run its handler twice.
+     */
+    private boolean deduplicationEnabled = true;
+
+    /**
+     * The number of most recent update IDs remembered for deduplication. Costs one bit per ID.
+     */
+    private int deduplicationWindow = 65_536;
+
+    /**
+     * The file the ID of the last fully processed update is saved to, so a restarted bot resumes polling after it
+     * and does not handle it again. {@code null} disables checkpointing.
+     */
+    private String checkpointFile;
+
+    /**
+     * How often the checkpoint file is saved while updates are being processed. Updates processed since the last
+     * save may be handled again after a crash, but never after a regular shutdown.
+     */
+    private Duration checkpointInterval = Duration.ofSeconds(1);
+
+    /**
+     * The maximum number of chats scheduled tasks are sent to. When it is reached, the chat seen longest ago
+     * is dropped.
+     */
+    private int activeChatsMaxSize = 1_000_000;
+
+    /**
+     * How long a chat keeps receiving scheduled tasks after its last message. {@code null} keeps every chat
+     * until {@link #activeChatsMaxSize} is reached.
+     */
+    private Duration activeChatTtl;
+
+    /**
+     * The file the chats scheduled tasks are sent to are saved to and restored from, so they are reached right
+     * after a restart. {@code null} keeps them in memory only.
+     */
+    private String activeChatsFile;
+
+    /**
+     * How often the active chats are saved to {@link #activeChatsFile}.
+     */
+    private Duration activeChatsSaveInterval = Duration.ofMinutes(1);
+
+    /**
+     * The number of chats a scheduled task runs for in parallel. Messages are still paced by the outbound rate
+     * limit, so raising this mostly helps tasks that spend time outside of sending. In
+     * {@link ExecutionMode#PLATFORM} mode this is also the number of threads running scheduled tasks.
+     */
+    private int scheduledTaskParallelism = 8;
+
+    /**
+     * The resolution of the {@link service.TimerService} behind delayed actions such as
+     * {@link service.MessageService#deleteMessageLater}. Timers fire up to this much late.
+     */
+    private Duration timerTickDuration = Duration.ofMillis(100);
+
+    /**
+     * The number of threads running the actions of due timers. Ignored in {@link ExecutionMode#VIRTUAL} mode,
+     * where every action runs on its own virtual thread.
+     */
+    private int timerThreads = 2;
+
+    /**
+     * The file pending delayed actions, such as {@link service.MessageService#deleteMessageLater}, are logged to,
+     * so they still run after a restart. Actions that fell due while the bot was down run when it starts.
+     * {@code null} keeps them in memory only.
+     */
+    private String delayedActionsFile;
+
+    /**
+     * How often the delayed action file is forced to disk. Actions scheduled since the last sync may be lost
+     * if the machine crashes, but not if only the bot does.
+     */
+    private Duration delayedActionsSyncInterval = Duration.ofSeconds(1);
+
+    /**
+     * The kind of threads that run handlers and scheduled tasks. In {@link ExecutionMode#VIRTUAL} mode
+     * the dispatch workers are virtual threads, so {@link #dispatchParallelism} can be raised to
+     * thousands without reserving a platform thread for each.
+     */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /**
+     * Whether outbound messages are paced to stay within Telegram's rate limits.
+     */
+    private boolean rateLimitingEnabled = true;
+
+    /**
+     * The maximum number of messages per second across all chats.
+     */
+    private double globalMessagesPerSecond = 30;
+
+    /**
+     * The maximum number of messages per second to a single private chat.
+     */
+    private double privateChatMessagesPerSecond = 1;
+
+    /**
+     * The maximum number of messages per minute to a single group or channel.
+     */
+    private double groupMessagesPerMinute = 20;
+
+    /**
+     * The number of threads sending rate-limited messages. Ignored in {@link ExecutionMode#VIRTUAL} mode,
+     * where every message is sent on its own virtual thread.
+     */
+    private int outboundSenderThreads = 8;
+
+    /**
+     * How often a message rejected with {@code 429 Too Many Requests} is retried after the {@code retry_after} period.
+     */
+    private int outboundMaxRetries = 3;
+
+    /**
+     * Whether chat member lookups behind admin and membership checks are cached.
+     */
+    private boolean memberCacheEnabled = true;
+
+    /**
+     * How long members, admins and restricted users are cached. The cache is refreshed from
+     * {@code my_chat_member} and {@code chat_member} updates, so when {@code chat_member} is among the
+     * allowed updates this can safely be raised to hours.
+     */
+    private Duration memberCacheTtl = Duration.ofMinutes(1);
+
+    /**
+     * How long users who left or were banned are cached.
+     */
+    private Duration memberCacheNegativeTtl = Duration.ofSeconds(10);
+
+    /**
+     * The maximum number of cached chat members.
+     */
+    private int memberCacheMaxSize = 100_000;
+
+    /**
+     * The number of fetched {@code getUpdates} batches {@link JBotLibSession} keeps ready while the current
+     * batch is dispatched. The batch size and long-poll timeout are set with {@link #setGetUpdatesLimit(int)}
+     * and {@link #setGetUpdatesTimeout(int)}.
+     */
+    private int prefetchBatches = 2;
+
+    /**
+     * Whether {@code allowed_updates} is derived from the bot's handlers when it is not set explicitly with
+     * {@link #setAllowedUpdates(java.util.List)}, so Telegram only sends the update types the handlers use.
+     * Leave this off if the bot overrides {@code onUpdateReceived} to handle other update types itself.
+     */
+    private boolean allowedUpdatesFromHandlers;
+}
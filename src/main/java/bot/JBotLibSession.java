@@ -0,0 +1,223 @@
+package bot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BackOff;
+import org.telegram.telegrambots.meta.generics.BotOptions;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.meta.generics.LongPollingBot;
+import org.telegram.telegrambots.updatesreceivers.ExponentialBackOff;
+import service.UpdateCheckpoint;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long polling session that fetches the next {@code getUpdates} batch while the current one is being handled.
+ * A poller thread requests batches of up to {@link DefaultBotOptions#getGetUpdatesLimit()} updates, filtered by
+ * {@link DefaultBotOptions#getAllowedUpdates()}, and queues them; a handler thread passes each batch to
+ * {@link LongPollingBot#onUpdatesReceived(List)}. At most {@link JBotLibOptions#getPrefetchBatches()} batches
+ * wait in the queue, after which the poller waits for the handler.
+ *
+ * <p>Register a bot with this session instead of the default one:</p>
+ * <pre>
+ * new TelegramBotsApi(JBotLibSession.class).registerBot(new MyBot());
+ * </pre>
+ *
+ * <p>The bot must also be an {@link AbsSender}, as every {@link JBotLib} is, since batches are requested
+ * through it. Fetching a batch confirms the previous ones to Telegram, so updates still waiting in the queue
+ * when the process dies are not delivered again. If the bot has an {@link service.UpdateCheckpoint}, polling
+ * resumes after the last update it saved as processed, and each request only confirms the updates the
+ * checkpoint reports as processed. Updates fetched again because handlers are still busy with them are
+ * dropped by the session, and the poller waits a moment before asking again, so the poller runs at most one
+ * batch ahead of the oldest update still being handled.</p>
+ */
+@Slf4j
+public class JBotLibSession implements BotSession {
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private DefaultBotOptions options;
+    private LongPollingBot callback;
+    private AbsSender sender;
+    private BlockingQueue<List<Update>> batches;
+    private Thread poller;
+    private Thread handler;
+    private volatile boolean running;
+    private volatile int offset;
+    private UpdateCheckpoint checkpoint;
+
+    @Override
+    public void setOptions(BotOptions options) {
+        this.options = (DefaultBotOptions) options;
+    }
+
+    @Override
+    public void setToken(String token) {
+        // Requests are sent through the bot, which already knows its token.
+    }
+
+    @Override
+    public void setCallback(LongPollingBot callback) {
+        if (!(callback instanceof AbsSender)) {
+            throw new IllegalArgumentException("JBotLibSession requires a bot that is also an AbsSender");
+        }
+        this.callback = callback;
+        this.sender = (AbsSender) callback;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Session already running");
+        }
+        checkpoint = callback instanceof JBotLib ? ((JBotLib) callback).getUpdateCheckpoint() : null;
+        if (offset == 0 && checkpoint != null) {
+            checkpoint.savedUpdateId().ifPresent(id -> offset = (int) (id + 1));
+        }
+        int prefetch = options instanceof JBotLibOptions ? ((JBotLibOptions) options).getPrefetchBatches() : 1;
+        batches = new ArrayBlockingQueue<>(Math.max(1, prefetch));
+        running = true;
+        poller = new Thread(this::poll, "jbotlib-poller");
+        handler = new Thread(this::handle, "jbotlib-update-handler");
+        poller.start();
+        handler.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.interrupt();
+        try {
+            handler.join(TimeUnit.SECONDS.toMillis(options.getGetUpdatesTimeout() + 10L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        callback.onClosing();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the offset of the next {@code getUpdates} request, which is one past the last fetched update.
+     *
+     * @return The next offset.
+     */
+    protected int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the offset of the next {@code getUpdates} request, for example to resume from a saved position.
+     * Only has an effect before the session is started.
+     *
+     * @param offset The next offset.
+     */
+    protected void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    private void poll() {
+        BackOff backOff = options.getBackOff() != null ? options.getBackOff() : new ExponentialBackOff.Builder().build();
+        while (running) {
+            List<Update> updates;
+            try {
+                GetUpdates request = new GetUpdates(requestOffset(), options.getGetUpdatesLimit(),
+                        options.getGetUpdatesTimeout(), options.getAllowedUpdates());
+                updates = sender.execute(request);
+                backOff.reset();
+            } catch (TelegramApiException e) {
+                if (!running) {
+                    return;
+                }
+                long delay = backOff.nextBackOffMillis();
+                log.error("Failed to fetch updates, retrying in {} ms: {}", delay, e.getMessage());
+                if (!sleep(delay)) {
+                    return;
+                }
+                continue;
+            }
+            updates = unfetched(updates);
+            if (updates.isEmpty()) {
+                if (checkpoint != null && !sleep(POLL_INTERVAL_MILLIS)) {
+                    return;
+                }
+                continue;
+            }
+            offset = updates.get(updates.size() - 1).getUpdateId() + 1;
+            try {
+                batches.put(updates);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the offset to request updates from. With a checkpoint, this is one past the last processed update,
+     * so Telegram keeps every update still queued or being handled until it is done with.
+     *
+     * @return The offset of the next request.
+     */
+    private int requestOffset() {
+        if (checkpoint == null) {
+            return offset;
+        }
+        long processed = checkpoint.processedUpTo();
+        return processed < 0 ? 0 : (int) Math.min(offset, processed + 1);
+    }
+
+    /**
+     * Drops the updates of a batch that were fetched before, keeping those at or after the offset.
+     *
+     * @param updates The fetched updates, in ascending order of their IDs.
+     * @return The updates not fetched before.
+     */
+    private List<Update> unfetched(List<Update> updates) {
+        int first = 0;
+        while (first < updates.size() && updates.get(first).getUpdateId() < offset) {
+            first++;
+        }
+        return first == 0 ? updates : updates.subList(first, updates.size());
+    }
+
+    private void handle() {
+        while (running || !batches.isEmpty()) {
+            List<Update> batch;
+            try {
+                batch = batches.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch == null) {
+                continue;
+            }
+            try {
+                callback.onUpdatesReceived(batch);
+            } catch (Exception e) {
+                log.error("Failed to handle updates: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
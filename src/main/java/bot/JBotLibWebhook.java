@@ -0,0 +1,233 @@
+package bot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import service.*;
+import utils.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Abstract base class for Telegram bots that receive updates through a webhook instead of long polling.
+ * Updates are posted by Telegram to an embedded HTTP server built on the JDK's {@link HttpServer}, decoded
+ * straight into {@link Update} objects and handed to the same {@link UpdateDispatcher} and annotated handlers
+ * as in {@link JBotLib}, so a bot can switch between the two by changing its base class.
+ *
+ * <p>Call {@link #start()} to start the server and, if a {@link WebhookOptions#getPublicUrl() public URL} is
+ * configured, register the webhook with Telegram. Without a public URL the server can be tested locally by
+ * posting fixture updates:</p>
+ * <pre>
+ * curl -X POST http://localhost:8443/telegram \
+ *      -H 'Content-Type: application/json' \
+ *      -H 'X-Telegram-Bot-Api-Secret-Token: my-secret' \
+ *      -d '{"update_id": 1, "message": {"message_id": 1, "date": 0,
+ *           "chat": {"id": 42, "type": "private"}, "from": {"id": 42, "is_bot": false, "first_name": "A"},
+ *           "text": "/start"}}'
+ * </pre>
+ */
+@Getter
+public abstract class JBotLibWebhook extends DefaultAbsSender {
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final AnnotationService annotationService;
+    private final ChatService chatService;
+    private final EventLogger eventLogger;
+    private final KeyboardBuilder keyboardBuilder;
+    private final MessageService messageService;
+    private final UpdateDispatcher updateDispatcher;
+    private final OutboundScheduler outboundScheduler;
+    private final UpdateCheckpoint updateCheckpoint;
+    private final DelayedActionStore delayedActions;
+    private final WebhookOptions webhookOptions;
+    @Getter(AccessLevel.NONE)
+    private final BotServices services;
+    @Getter(AccessLevel.NONE)
+    private final byte[] secret;
+    @Getter(AccessLevel.NONE)
+    private HttpServer server;
+    @Getter(AccessLevel.NONE)
+    private ExecutorService serverExecutor;
+
+    /**
+     * Constructs a new webhook bot with default bot options.
+     *
+     * @param webhookOptions The options of the embedded HTTP server.
+     * @param botToken       The token of the bot.
+     */
+    protected JBotLibWebhook(WebhookOptions webhookOptions, String botToken) {
+        this(new JBotLibOptions(), webhookOptions, botToken);
+    }
+
+    /**
+     * Constructs a new webhook bot with the given options.
+     *
+     * @param options        The options of the bot.
+     * @param webhookOptions The options of the embedded HTTP server.
+     * @param botToken       The token of the bot.
+     */
+    protected JBotLibWebhook(JBotLibOptions options, WebhookOptions webhookOptions, String botToken) {
+        this(options, webhookOptions, botToken, new EventLogger());
+    }
+
+    /**
+     * Constructs a new webhook bot with the given options and event logger.
+     *
+     * @param options        The options of the bot.
+     * @param webhookOptions The options of the embedded HTTP server.
+     * @param botToken       The token of the bot.
+     * @param eventLogger    The EventLogger instance used by the bot and its services.
+     * @throws UnsupportedOperationException If {@link ExecutionMode#VIRTUAL} is requested on a JVM without virtual threads.
+     */
+    protected JBotLibWebhook(JBotLibOptions options, WebhookOptions webhookOptions, String botToken,
+                             EventLogger eventLogger) {
+        super(options, botToken);
+        BotServices services = new BotServices(this, options, eventLogger);
+        this.services = services;
+        this.eventLogger = services.eventLogger;
+        this.keyboardBuilder = services.keyboardBuilder;
+        this.chatService = services.chatService;
+        this.outboundScheduler = services.outboundScheduler;
+        this.messageService = services.messageService;
+        this.annotationService = services.annotationService;
+        this.updateDispatcher = services.updateDispatcher;
+        this.updateCheckpoint = services.updateCheckpoint;
+        this.delayedActions = services.delayedActions;
+        this.webhookOptions = webhookOptions;
+        this.secret = webhookOptions.getSecretToken() != null
+                ? webhookOptions.getSecretToken().getBytes(StandardCharsets.UTF_8)
+                : null;
+    }
+
+    /**
+     * Starts the embedded HTTP server, registers the webhook with Telegram if a public URL is configured,
+     * and resolves the bot's own user.
+     *
+     * @throws IOException          If the server cannot bind to its address.
+     * @throws TelegramApiException If the webhook cannot be registered.
+     */
+    public synchronized void start() throws IOException, TelegramApiException {
+        if (server != null) {
+            throw new IllegalStateException("Webhook server is already running");
+        }
+        JBotLibOptions options = (JBotLibOptions) getOptions();
+        serverExecutor = options.getExecutionMode() == ExecutionMode.VIRTUAL
+                ? VirtualThreads.newPerTaskExecutor("jbotlib-webhook-")
+                : Executors.newFixedThreadPool(webhookOptions.getServerThreads());
+        server = HttpServer.create(new InetSocketAddress(webhookOptions.getBindAddress(), webhookOptions.getPort()), 0);
+        server.createContext(webhookOptions.getPath(), this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        if (webhookOptions.getPublicUrl() != null) {
+            SetWebhook setWebhook = new SetWebhook(webhookOptions.getPublicUrl() + webhookOptions.getPath());
+            setWebhook.setSecretToken(webhookOptions.getSecretToken());
+            setWebhook.setDropPendingUpdates(webhookOptions.isDropPendingUpdates());
+            setWebhook.setMaxConnections(webhookOptions.getMaxConnections());
+            setWebhook.setAllowedUpdates(options.getAllowedUpdates());
+            execute(setWebhook);
+        }
+        services.resolveBotUser();
+    }
+
+    /**
+     * Stops accepting updates, lets updates already queued finish, and stops the bot's services.
+     * The webhook stays registered with Telegram, which keeps updates until the bot is started again.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            serverExecutor.shutdown();
+            server = null;
+        }
+        services.shutdown();
+        exe.shutdown();
+    }
+
+    /**
+     * Returns the port the server is listening on, which differs from the configured one when port 0 was
+     * configured to pick a free port.
+     *
+     * @return The local port, or {@code -1} if the server is not running.
+     */
+    public synchronized int getLocalPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    /**
+     * Hands the update to the {@link UpdateDispatcher}, which processes it asynchronously.
+     *
+     * @param update The Telegram update received.
+     */
+    public void onUpdateReceived(Update update) {
+        updateDispatcher.dispatch(update);
+    }
+
+    /**
+     * Handles a request of the embedded server. The response is sent once the update is queued,
+     * so a full dispatch queue slows Telegram's deliveries down instead of losing updates.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!webhookOptions.getPath().equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (secret != null && !isSecretValid(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(webhookOptions.getMaxBodyBytes() + 1);
+            }
+            if (body.length > webhookOptions.getMaxBodyBytes()) {
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            }
+
+            Update update;
+            try {
+                update = MAPPER.readValue(body, Update.class);
+            } catch (IOException e) {
+                eventLogger.logWarning("Rejected malformed update: " + e.getMessage(), "webhook");
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            onUpdateReceived(update);
+            exchange.sendResponseHeaders(200, -1);
+        } catch (RuntimeException e) {
+            eventLogger.logError(e, "webhook");
+            if (exchange.getResponseCode() == -1) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean isSecretValid(String header) {
+        return header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+}
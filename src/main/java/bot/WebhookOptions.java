@@ -0,0 +1,60 @@
+package bot;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration options of the embedded HTTP server of a {@link JBotLibWebhook}.
+ */
+@Getter
+@Setter
+public class WebhookOptions {
+    /**
+     * The address the server binds to.
+     */
+    private String bindAddress = "0.0.0.0";
+
+    /**
+     * The port the server listens on. Telegram delivers webhooks to ports 443, 80, 88 and 8443, usually
+     * through a reverse proxy that terminates TLS in front of this server.
+     */
+    private int port = 8443;
+
+    /**
+     * The path updates are posted to.
+     */
+    private String path = "/telegram";
+
+    /**
+     * The public HTTPS URL Telegram posts updates to, without the path. When set, the webhook is registered
+     * with Telegram on {@link JBotLibWebhook#start()}; when {@code null}, registration is left to the caller,
+     * which is convenient for posting fixture updates to a local server.
+     */
+    private String publicUrl;
+
+    /**
+     * The secret Telegram sends in the {@code X-Telegram-Bot-Api-Secret-Token} header. Requests without it
+     * are rejected. {@code null} disables the check.
+     */
+    private String secretToken;
+
+    /**
+     * Whether updates Telegram queued before the webhook was registered are dropped.
+     */
+    private boolean dropPendingUpdates;
+
+    /**
+     * The maximum number of simultaneous connections Telegram opens to deliver updates.
+     */
+    private int maxConnections = 40;
+
+    /**
+     * The number of threads handling HTTP requests. Each only decodes an update and queues it for dispatch.
+     */
+    private int serverThreads = 4;
+
+    /**
+     * The largest accepted request body in bytes.
+     */
+    private int maxBodyBytes = 1024 * 1024;
+}
@@ -0,0 +1,438 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * A bounded, concurrent set of the chats a bot is active in, used to fan scheduled tasks out to them.
+ * Chat IDs are stored as primitive longs in open-addressing hash tables, each guarded by its own lock,
+ * together with the time the chat was last seen. Chats not seen for longer than the TTL are dropped. The size
+ * bound is split evenly across the tables. When a table is full, a clock hand samples a few chats and evicts
+ * the one seen longest ago, an approximation of least-recently-seen eviction that costs the same no matter
+ * how large the table is.
+ *
+ * <p>With a snapshot file the registry is restored on construction and saved periodically and on
+ * {@link #close()}, so scheduled tasks reach the same chats right after a restart. Snapshots are written to
+ * a temporary file and atomically moved into place.</p>
+ */
+@Slf4j
+public class ActiveChatRegistry {
+    private static final int SEGMENTS = 16;
+    private static final int MAGIC = 0x4A424143;
+    private static final int HEADER_BYTES = 8;
+    private static final int ENTRY_BYTES = 16;
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlMillis;
+    private final Path snapshotFile;
+    private final ScheduledExecutorService saver;
+    private final Object saveLock = new Object();
+
+    /**
+     * Constructs a new in-memory ActiveChatRegistry instance.
+     *
+     * @param maxSize The maximum number of chats.
+     * @param ttl     How long a chat stays registered after it was last seen, or {@code null} to keep it until evicted.
+     */
+    public ActiveChatRegistry(int maxSize, Duration ttl) {
+        this(maxSize, ttl, null, null);
+    }
+
+    /**
+     * Constructs a new ActiveChatRegistry instance that is restored from and saved to a snapshot file.
+     *
+     * @param maxSize      The maximum number of chats.
+     * @param ttl          How long a chat stays registered after it was last seen, or {@code null} to keep it until evicted.
+     * @param snapshotFile The snapshot file, or {@code null} to keep the registry in memory only.
+     * @param saveInterval How often the snapshot is saved.
+     */
+    public ActiveChatRegistry(int maxSize, Duration ttl, Path snapshotFile, Duration saveInterval) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Registry size must be positive");
+        }
+        int segmentCapacity = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.ttlMillis = ttl != null && !ttl.isZero() ? ttl.toMillis() : Long.MAX_VALUE;
+        this.snapshotFile = snapshotFile;
+
+        if (snapshotFile == null) {
+            this.saver = null;
+            return;
+        }
+        restore();
+        this.saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jbotlib-active-chats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, saveInterval.toMillis());
+        saver.scheduleWithFixedDelay(this::save, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a chat as active now.
+     *
+     * @param chatId The ID of the chat.
+     */
+    public void touch(long chatId) {
+        touch(chatId, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes a chat, for example after the bot was removed from it.
+     *
+     * @param chatId The ID of the chat.
+     * @return {@code true} if the chat was registered.
+     */
+    public boolean remove(long chatId) {
+        return chatId != 0 && segmentFor(chatId).remove(chatId);
+    }
+
+    /**
+     * Returns whether a chat is registered and has not expired.
+     *
+     * @param chatId The ID of the chat.
+     * @return {@code true} if the chat is active.
+     */
+    public boolean contains(long chatId) {
+        return chatId != 0 && segmentFor(chatId).contains(chatId, expiryCutoff(System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns the number of registered chats, including expired ones not removed yet.
+     *
+     * @return The number of chats.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Passes every active chat to the given action, removing expired chats along the way.
+     * Chats are copied out one table at a time, so the action runs without holding a lock and
+     * chats may be registered concurrently.
+     *
+     * @param action The action to perform for each chat.
+     */
+    public void forEach(LongConsumer action) {
+        long cutoff = expiryCutoff(System.currentTimeMillis());
+        for (Segment segment : segments) {
+            long[] chatIds = segment.collect(cutoff);
+            for (long chatId : chatIds) {
+                action.accept(chatId);
+            }
+        }
+    }
+
+    /**
+     * Returns the active chats at this moment, removing expired chats along the way.
+     *
+     * @return The IDs of the active chats.
+     */
+    public long[] snapshot() {
+        long cutoff = expiryCutoff(System.currentTimeMillis());
+        long[][] tables = new long[SEGMENTS][];
+        int count = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            tables[i] = segments[i].collect(cutoff);
+            count += tables[i].length;
+        }
+        long[] chatIds = new long[count];
+        int n = 0;
+        for (long[] table : tables) {
+            System.arraycopy(table, 0, chatIds, n, table.length);
+            n += table.length;
+        }
+        return chatIds;
+    }
+
+    /**
+     * Removes every chat not seen within the TTL.
+     *
+     * @return The number of removed chats.
+     */
+    public int expire() {
+        long cutoff = expiryCutoff(System.currentTimeMillis());
+        int removed = 0;
+        for (Segment segment : segments) {
+            removed += segment.expire(cutoff);
+        }
+        return removed;
+    }
+
+    /**
+     * Saves a snapshot of the registry to its snapshot file, if it has one.
+     */
+    public void save() {
+        if (snapshotFile == null) {
+            return;
+        }
+        synchronized (saveLock) {
+            try {
+                write(snapshotFile);
+            } catch (IOException e) {
+                log.error("Failed to save active chats to {}: {}", snapshotFile, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops the periodic saving and saves the snapshot a last time.
+     */
+    public void close() {
+        if (saver == null) {
+            return;
+        }
+        saver.shutdown();
+        try {
+            saver.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        save();
+    }
+
+    private void touch(long chatId, long now) {
+        if (chatId != 0) {
+            segmentFor(chatId).put(chatId, now);
+        }
+    }
+
+    private long expiryCutoff(long now) {
+        return ttlMillis == Long.MAX_VALUE ? Long.MIN_VALUE : now - ttlMillis;
+    }
+
+    private Segment segmentFor(long chatId) {
+        return segments[(int) (hash(chatId) >>> 60)];
+    }
+
+    private static long hash(long chatId) {
+        return chatId * 0x9E3779B97F4A7C15L;
+    }
+
+    private static int slot(long chatId, int mask) {
+        long hash = hash(chatId);
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void write(Path file) throws IOException {
+        long[][] tables = new long[SEGMENTS][];
+        int count = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            tables[i] = segments[i].entries();
+            count += tables[i].length / 2;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(count);
+        for (long[] table : tables) {
+            for (long value : table) {
+                buffer.putLong(value);
+            }
+        }
+        buffer.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void restore() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                log.warn("Ignoring unreadable active chats snapshot {}", snapshotFile);
+                return;
+            }
+            int count = Math.min(buffer.getInt(), buffer.remaining() / ENTRY_BYTES);
+            long cutoff = expiryCutoff(System.currentTimeMillis());
+            for (int i = 0; i < count; i++) {
+                long chatId = buffer.getLong();
+                long lastSeen = buffer.getLong();
+                if (lastSeen > cutoff) {
+                    touch(chatId, lastSeen);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable active chats snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * An open-addressing hash table with linear probing. A key of {@code 0}, which is never a chat ID,
+     * marks an empty slot, and removals shift the following entries back instead of leaving tombstones.
+     */
+    private static final class Segment {
+        private final int capacity;
+        private long[] keys = new long[16];
+        private long[] lastSeen = new long[16];
+        private int size;
+        private int hand;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void put(long chatId, long now) {
+            int slot = find(chatId);
+            if (keys[slot] == chatId) {
+                lastSeen[slot] = Math.max(lastSeen[slot], now);
+                return;
+            }
+            if (size >= capacity) {
+                evictOldest();
+            } else if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            slot = find(chatId);
+            keys[slot] = chatId;
+            lastSeen[slot] = now;
+            size++;
+        }
+
+        synchronized boolean contains(long chatId, long cutoff) {
+            int slot = find(chatId);
+            return keys[slot] == chatId && lastSeen[slot] > cutoff;
+        }
+
+        synchronized boolean remove(long chatId) {
+            int slot = find(chatId);
+            if (keys[slot] != chatId) {
+                return false;
+            }
+            removeAt(slot);
+            return true;
+        }
+
+        synchronized long[] collect(long cutoff) {
+            expire(cutoff);
+            long[] chatIds = new long[size];
+            int n = 0;
+            for (long key : keys) {
+                if (key != 0) {
+                    chatIds[n++] = key;
+                }
+            }
+            return chatIds;
+        }
+
+        synchronized int expire(long cutoff) {
+            int removed = 0;
+            for (int i = 0; i < keys.length; ) {
+                if (keys[i] != 0 && lastSeen[i] <= cutoff) {
+                    removeAt(i);
+                    removed++;
+                } else {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        synchronized long[] entries() {
+            long[] entries = new long[size * 2];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    entries[n++] = keys[i];
+                    entries[n++] = lastSeen[i];
+                }
+            }
+            return entries;
+        }
+
+        private int find(long chatId) {
+            int mask = keys.length - 1;
+            int slot = slot(chatId, mask);
+            while (keys[slot] != 0 && keys[slot] != chatId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Evicts the chat seen longest ago among the next few chats after the clock hand, and moves the hand
+         * past them so the next eviction samples different chats.
+         */
+        private void evictOldest() {
+            int mask = keys.length - 1;
+            int oldest = -1;
+            int slot = hand & mask;
+            for (int sampled = 0; sampled < EVICTION_SAMPLES && sampled < size; slot = (slot + 1) & mask) {
+                if (keys[slot] != 0) {
+                    if (oldest < 0 || lastSeen[slot] < lastSeen[oldest]) {
+                        oldest = slot;
+                    }
+                    sampled++;
+                }
+            }
+            hand = slot;
+            removeAt(oldest);
+        }
+
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != 0) {
+                int home = slot(keys[next], mask);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    lastSeen[hole] = lastSeen[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = 0;
+            lastSeen[hole] = 0;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldLastSeen = lastSeen;
+            keys = new long[oldKeys.length * 2];
+            lastSeen = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    lastSeen[slot] = oldLastSeen[i];
+                }
+            }
+        }
+    }
+}
@@ -1,62 +1,140 @@
 package service;
 
-import bot.JBotLib;
 import annotations.AdminOnly;
 import annotations.AutoReply;
 import annotations.BotCommand;
+import annotations.CallbackHandler;
 import annotations.ScheduledTask;
-import lombok.SneakyThrows;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import utils.AhoCorasickMatcher;
+import utils.PrefixTrie;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A service class for managing and processing bot annotations in a Telegram bot.
- * Handles annotations such as {@link BotCommand}, {@link AutoReply}, {@link AdminOnly}, and
- * {@link ScheduledTask}, providing a clean separation of annotation logic from the core bot functionality.
+ * Handles annotations such as {@link BotCommand}, {@link AutoReply}, {@link CallbackHandler}, {@link AdminOnly},
+ * and {@link ScheduledTask}, providing a clean separation of annotation logic from the core bot functionality.
  *
  * <p>This class scans for annotated methods in the bot implementation, registers them, and
  * invokes them based on incoming updates or scheduled tasks. It supports command handling,
- * automatic replies, admin-only commands, and scheduled tasks.</p>
+ * automatic replies, inline button callbacks, admin-only commands, and scheduled tasks.</p>
  *
  * @author [Your Name]
  * @version 1.0
  */
 public class AnnotationService {
-    private final JBotLib bot;
+    private static final int DEFAULT_FAN_OUT_SHARDS = 8;
+
+    private final DefaultAbsSender bot;
     private final MessageService messageService;
     private final KeyboardBuilder keyboardBuilder;
     private final ChatService chatService;
     private final EventLogger eventLogger;
+    private final ExecutorService taskExecutor;
+    private final List<ExecutorService> taskPools = new ArrayList<>();
+    private final ActiveChatRegistry activeChats;
+    private final int fanOutShards;
+    private final List<TaskFanOut> scheduledTasks = new ArrayList<>();
 
-    private final Map<String, Method> commandHandlers = new HashMap<>();
-    private final Map<String, Method> autoReplyHandlers = new HashMap<>();
+    private final Map<String, HandlerInvoker> commandHandlers = new HashMap<>();
+    private final Map<String, HandlerInvoker> autoReplyHandlers = new HashMap<>();
+    private volatile AhoCorasickMatcher<HandlerInvoker> autoReplyMatcher = buildAutoReplyMatcher();
+    private final Map<String, HandlerInvoker> callbackHandlers = new HashMap<>();
+    private volatile PrefixTrie<CallbackRoute> callbackRoutes = buildCallbackRoutes();
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private final Set<Long> activeChats = new HashSet<>();
 
     /**
      * Constructs a new AnnotationService instance.
      *
-     * @param bot             The JBotLib instance containing the annotated methods.
+     * @param bot             The bot instance containing the annotated methods, such as a JBotLib.
      * @param messageService  The MessageService instance for sending messages.
      * @param keyboardBuilder The KeyboardBuilder instance for creating keyboards.
      * @param chatService     The ChatService instance for managing chat operations.
      * @param eventLogger     The EventLogger instance for logging events.
      */
-    public AnnotationService(JBotLib bot, MessageService messageService, KeyboardBuilder keyboardBuilder,
+    public AnnotationService(DefaultAbsSender bot, MessageService messageService, KeyboardBuilder keyboardBuilder,
                              ChatService chatService, EventLogger eventLogger) {
+        this(bot, messageService, keyboardBuilder, chatService, eventLogger, null);
+    }
+
+    /**
+     * Constructs a new AnnotationService instance that runs each {@link ScheduledTask} invocation
+     * on the given executor, for example a virtual-thread-per-task executor.
+     *
+     * @param bot             The bot instance containing the annotated methods, such as a JBotLib.
+     * @param messageService  The MessageService instance for sending messages.
+     * @param keyboardBuilder The KeyboardBuilder instance for creating keyboards.
+     * @param chatService     The ChatService instance for managing chat operations.
+     * @param eventLogger     The EventLogger instance for logging events.
+     * @param taskExecutor    The executor running scheduled task invocations, which must not limit how many
+     *                        run at once, or {@code null} to give each task its own pool of platform threads.
+     */
+    public AnnotationService(DefaultAbsSender bot, MessageService messageService, KeyboardBuilder keyboardBuilder,
+                             ChatService chatService, EventLogger eventLogger, ExecutorService taskExecutor) {
+        this(bot, messageService, keyboardBuilder, chatService, eventLogger, taskExecutor,
+                new ActiveChatRegistry(1_000_000, null));
+    }
+
+    /**
+     * Constructs a new AnnotationService instance that sends {@link ScheduledTask} invocations to the chats
+     * in the given registry, which may already hold the chats restored from a previous run.
+     *
+     * @param bot             The bot instance containing the annotated methods, such as a JBotLib.
+     * @param messageService  The MessageService instance for sending messages.
+     * @param keyboardBuilder The KeyboardBuilder instance for creating keyboards.
+     * @param chatService     The ChatService instance for managing chat operations.
+     * @param eventLogger     The EventLogger instance for logging events.
+     * @param taskExecutor    The executor running scheduled task invocations, which must not limit how many
+     *                        run at once, or {@code null} to give each task its own pool of platform threads.
+     * @param activeChats     The registry of chats scheduled tasks are sent to.
+     */
+    public AnnotationService(DefaultAbsSender bot, MessageService messageService, KeyboardBuilder keyboardBuilder,
+                             ChatService chatService, EventLogger eventLogger, ExecutorService taskExecutor,
+                             ActiveChatRegistry activeChats) {
+        this(bot, messageService, keyboardBuilder, chatService, eventLogger, taskExecutor, activeChats,
+                DEFAULT_FAN_OUT_SHARDS);
+    }
+
+    /**
+     * Constructs a new AnnotationService instance that sends {@link ScheduledTask} invocations to the chats
+     * in the given registry, which may already hold the chats restored from a previous run.
+     *
+     * @param bot             The bot instance containing the annotated methods, such as a JBotLib.
+     * @param messageService  The MessageService instance for sending messages.
+     * @param keyboardBuilder The KeyboardBuilder instance for creating keyboards.
+     * @param chatService     The ChatService instance for managing chat operations.
+     * @param eventLogger     The EventLogger instance for logging events.
+     * @param taskExecutor    The executor running scheduled task invocations, which must not limit how many
+     *                        run at once, or {@code null} to give each task its own pool of platform threads.
+     * @param activeChats     The registry of chats scheduled tasks are sent to.
+     * @param fanOutShards    The number of chats each scheduled task runs for in parallel.
+     */
+    public AnnotationService(DefaultAbsSender bot, MessageService messageService, KeyboardBuilder keyboardBuilder,
+                             ChatService chatService, EventLogger eventLogger, ExecutorService taskExecutor,
+                             ActiveChatRegistry activeChats, int fanOutShards) {
         this.bot = bot;
         this.messageService = messageService;
         this.keyboardBuilder = keyboardBuilder;
         this.chatService = chatService;
         this.eventLogger = eventLogger;
+        this.taskExecutor = taskExecutor;
+        this.activeChats = activeChats;
+        this.fanOutShards = fanOutShards;
 
         registerHandlers();
         scheduleTasks();
@@ -64,7 +142,14 @@ public class AnnotationService {
 
     /**
      * Processes an incoming Telegram update and triggers appropriate annotated methods.
+     * This method is safe to call concurrently for updates from different chats.
+     * {@code my_chat_member} and {@code chat_member} updates are passed to
+     * {@link ChatService#onChatMemberUpdated} to keep the chat member cache current, and a chat the bot
+     * left or was removed from is dropped from the active chats.
      * Handles {@link BotCommand} and {@link AutoReply} annotations based on the message text.
+     * At most one {@link AutoReply} handler runs per message: when several triggers occur in the text,
+     * the longest one wins, and triggers of equal length are ranked alphabetically.
+     * Callback queries are routed to the {@link CallbackHandler} with the longest matching prefix.
      *
      * @param update The Telegram update to process.
      *               <p>
@@ -76,29 +161,52 @@ public class AnnotationService {
      *                                                                       </pre>
      */
     public void processUpdate(Update update) {
+        if (update.hasMyChatMember()) {
+            chatService.onChatMemberUpdated(update.getMyChatMember());
+            String status = update.getMyChatMember().getNewChatMember().getStatus();
+            if ("left".equals(status) || "kicked".equals(status)) {
+                activeChats.remove(update.getMyChatMember().getChat().getId());
+            }
+        }
+        if (update.hasChatMember()) {
+            chatService.onChatMemberUpdated(update.getChatMember());
+        }
+
         if (update.hasMessage() && update.getMessage().hasText()) {
             Long chatId = update.getMessage().getChatId();
             Long userId = update.getMessage().getFrom().getId();
             String text = update.getMessage().getText();
 
-            activeChats.add(chatId);
+            LogContext.current().put("userId", userId);
+            activeChats.touch(chatId);
 
-            if (commandHandlers.containsKey(text)) {
-                invokeMethod(commandHandlers.get(text), chatId, userId);
+            HandlerInvoker command = commandHandlers.get(text);
+            if (command != null) {
+                invokeMethod(command, chatId, userId);
             }
 
-            for (Map.Entry<String, Method> entry : autoReplyHandlers.entrySet()) {
-                if (text.toLowerCase().contains(entry.getKey().toLowerCase())) {
-                    invokeMethod(entry.getValue(), chatId, userId);
-                    break;
-                }
+            HandlerInvoker autoReply = autoReplyMatcher.find(text);
+            if (autoReply != null) {
+                invokeMethod(autoReply, chatId, userId);
+            }
+        }
+
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getData() != null) {
+            CallbackQuery query = update.getCallbackQuery();
+            CallbackRoute route = callbackRoutes.findLongestPrefix(query.getData());
+            if (route != null) {
+                invokeCallback(route, query);
             }
         }
     }
 
     /**
-     * Registers methods annotated with {@link BotCommand} and {@link AutoReply}.
-     * Scans the bot's declared methods and maps them to their respective triggers.
+     * Registers methods annotated with {@link BotCommand}, {@link AutoReply} and {@link CallbackHandler}.
+     * Scans the bot's declared methods, compiles each one into a {@link HandlerInvoker}
+     * and maps it to its respective trigger. All {@link AutoReply} triggers are then compiled
+     * into a single case-insensitive automaton, so each message is scanned only once, and all
+     * {@link CallbackHandler} prefixes into a trie, so routing a callback query costs one step per
+     * character of its prefix, however many handlers there are.
      * <p>
      * Example:
      * <pre>
@@ -110,18 +218,29 @@ public class AnnotationService {
         for (Method method : bot.getClass().getDeclaredMethods()) {
             if (method.isAnnotationPresent(BotCommand.class)) {
                 String command = method.getAnnotation(BotCommand.class).value();
-                commandHandlers.put(command, method);
+                commandHandlers.put(command, compile(method));
             }
             if (method.isAnnotationPresent(AutoReply.class)) {
                 String trigger = method.getAnnotation(AutoReply.class).value();
-                autoReplyHandlers.put(trigger, method);
+                autoReplyHandlers.put(trigger, compile(method));
+            }
+            if (method.isAnnotationPresent(CallbackHandler.class)) {
+                String prefix = method.getAnnotation(CallbackHandler.class).value();
+                callbackHandlers.put(prefix, compile(method));
             }
         }
+        autoReplyMatcher = buildAutoReplyMatcher();
+        callbackRoutes = buildCallbackRoutes();
     }
 
     /**
      * Schedules tasks annotated with {@link ScheduledTask}.
-     * Executes the annotated methods at fixed intervals in all active chats.
+     * Executes the annotated methods at fixed intervals or on a cron schedule in all active chats, each run
+     * delayed by its own random jitter if one is configured. Each run is a {@link TaskFanOut}
+     * that spreads the chats over parallel shards, so the scheduler thread only starts runs. Without a task
+     * executor every task gets its own pool of shard threads, so a long task does not delay the others. A run stops at its time budget, and a tick is skipped
+     * while the previous run of the same task is still going.
+     * Messages sent by scheduled tasks are queued as {@link OutboundScheduler.Priority#BROADCAST}, behind replies to users.
      * <p>
      * Example:
      * <pre>
@@ -132,63 +251,222 @@ public class AnnotationService {
     public void scheduleTasks() {
         for (Method method : bot.getClass().getDeclaredMethods()) {
             if (method.isAnnotationPresent(ScheduledTask.class)) {
-                int interval = method.getAnnotation(ScheduledTask.class).intervalSeconds();
-                scheduler.scheduleAtFixedRate(() -> {
-                    try {
-                        for (Long chatId : activeChats) {
-                            invokeMethod(method, chatId, null);
-                        }
-                    } catch (Exception e) {
-                        eventLogger.logError(e, "scheduled_task_execution");
-                    }
-                }, 0, interval, TimeUnit.SECONDS);
+                ScheduledTask annotation = method.getAnnotation(ScheduledTask.class);
+                TaskSchedule schedule = TaskSchedule.of(annotation, method.getName());
+                HandlerInvoker task = HandlerInvoker.compile(bot, method,
+                        messageService.withPriority(OutboundScheduler.Priority.BROADCAST),
+                        keyboardBuilder, chatService, eventLogger);
+                ExecutorService executor = taskExecutor;
+                if (executor == null) {
+                    executor = newTaskPool(method.getName(), fanOutShards);
+                    taskPools.add(executor);
+                }
+                TaskFanOut fanOut = new TaskFanOut(method.getName(), chatId -> invokeMethod(task, chatId, null),
+                        activeChats, executor, fanOutShards, schedule.defaultBudget(), annotation.spread(),
+                        eventLogger);
+                scheduledTasks.add(fanOut);
+                scheduleRun(fanOut, schedule, schedule.firstDue(System.currentTimeMillis()));
             }
         }
     }
 
     /**
-     * Invokes a method with the specified parameters, handling {@link AdminOnly} restrictions.
-     * Dynamically prepares method arguments based on the method's parameter types.
+     * Returns the update types the registered handlers consume, for use as {@code allowed_updates}.
+     * {@code message} is always included, since messages register the chats of the {@link ActiveChatRegistry}
+     * that scheduled tasks and {@link #getActiveChats()} rely on, even in a bot without command or auto-reply
+     * handlers. {@code my_chat_member} and {@code chat_member} are included when the chat member cache is
+     * enabled, since those updates keep it current.
      *
-     * @param method The method to invoke.
-     * @param chatId The ID of the chat where the method is invoked.
-     * @param userId The ID of the user who triggered the method (can be null for scheduled tasks).
-     *               <p>
-     *               Example:
-     *               <pre>
-     *                                                                       // This method is private and called internally by processUpdate and scheduleTasks.
-     *                                                                       // See processUpdate for usage.
-     *                                                                       </pre>
+     * @return The names of the consumed update types.
+     */
+    public List<String> handledUpdateTypes() {
+        List<String> types = new ArrayList<>();
+        types.add("message");
+        if (!callbackHandlers.isEmpty()) {
+            types.add("callback_query");
+        }
+        if (chatService.getMemberCache() != null) {
+            types.add("my_chat_member");
+            types.add("chat_member");
+        }
+        return types;
+    }
+
+    /**
+     * Stops the scheduler running {@link ScheduledTask} methods and the task executor. Runs in progress
+     * finish the chats they are sending to and skip the rest.
      */
-    @SneakyThrows
-    private void invokeMethod(Method method, Long chatId, Long userId) {
-        if (method.isAnnotationPresent(AdminOnly.class)) {
+    public void shutdown() {
+        scheduler.shutdown();
+        for (TaskFanOut task : scheduledTasks) {
+            task.cancel();
+        }
+        if (taskExecutor != null) {
+            taskExecutor.shutdown();
+        }
+        for (ExecutorService pool : taskPools) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Schedules the run of a task due at the given time, plus its jitter. Each run schedules the next one
+     * before it starts, so a failing run does not stop the schedule.
+     *
+     * @param fanOut   The task to run.
+     * @param schedule The schedule of the task.
+     * @param due      The nominal due time of the run in epoch milliseconds.
+     */
+    private void scheduleRun(TaskFanOut fanOut, TaskSchedule schedule, long due) {
+        long delay = Math.max(0, due + schedule.drawJitter() - System.currentTimeMillis());
+        try {
+            scheduler.schedule(() -> {
+                long now = System.currentTimeMillis();
+                long next = schedule.nextDue(due, now);
+                scheduleRun(fanOut, schedule, next);
+                try {
+                    fanOut.run(schedule.budget(now, next));
+                } catch (Exception e) {
+                    eventLogger.logError(e, "scheduled_task_execution");
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The service is shutting down.
+        }
+    }
+
+    /**
+     * Returns the runners of the {@link ScheduledTask} methods, which report the progress of their runs.
+     *
+     * @return The scheduled tasks, in the order they were scheduled.
+     */
+    public List<TaskFanOut> getScheduledTasks() {
+        return Collections.unmodifiableList(scheduledTasks);
+    }
+
+    /**
+     * Returns the registry of chats scheduled tasks are sent to.
+     *
+     * @return The ActiveChatRegistry of this service.
+     */
+    public ActiveChatRegistry getActiveChats() {
+        return activeChats;
+    }
+
+    private static ExecutorService newTaskPool(String taskName, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, "jbotlib-task-" + taskName + "-" + count.getAndIncrement()));
+    }
+
+    /**
+     * Builds the automaton matching all registered {@link AutoReply} triggers, ranked by
+     * descending length and then alphabetically.
+     *
+     * @return The matcher for the current set of triggers.
+     */
+    private AhoCorasickMatcher<HandlerInvoker> buildAutoReplyMatcher() {
+        List<String> triggers = new ArrayList<>(autoReplyHandlers.keySet());
+        triggers.sort(Comparator.comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()));
+
+        List<HandlerInvoker> invokers = new ArrayList<>(triggers.size());
+        for (String trigger : triggers) {
+            invokers.add(autoReplyHandlers.get(trigger));
+        }
+        return AhoCorasickMatcher.build(triggers, invokers);
+    }
+
+    /**
+     * Builds the trie routing callback data to the registered {@link CallbackHandler} methods.
+     *
+     * @return The trie for the current set of prefixes.
+     */
+    private PrefixTrie<CallbackRoute> buildCallbackRoutes() {
+        List<String> prefixes = new ArrayList<>(callbackHandlers.keySet());
+        List<CallbackRoute> routes = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            routes.add(new CallbackRoute(prefix.length(), callbackHandlers.get(prefix)));
+        }
+        return PrefixTrie.build(prefixes, routes);
+    }
+
+    /**
+     * Compiles a handler method into a {@link HandlerInvoker} bound to the bot and its services.
+     *
+     * @param method The annotated handler method.
+     * @return The compiled invoker.
+     */
+    private HandlerInvoker compile(Method method) {
+        return HandlerInvoker.compile(bot, method, messageService, keyboardBuilder, chatService, eventLogger);
+    }
+
+    /**
+     * Invokes a compiled handler, handling {@link AdminOnly} restrictions.
+     * The handler's arguments were bound when it was registered, so no reflection happens here.
+     *
+     * @param invoker The compiled handler to invoke.
+     * @param chatId  The ID of the chat where the method is invoked.
+     * @param userId  The ID of the user who triggered the method (can be null for scheduled tasks).
+     *                <p>
+     *                Example:
+     *                <pre>
+     *                // This method is private and called internally by processUpdate and scheduleTasks.
+     *                // See processUpdate for usage.
+     *                </pre>
+     */
+    private void invokeMethod(HandlerInvoker invoker, Long chatId, Long userId) {
+        if (invoker.isAdminOnly()) {
             if (!chatService.isUserAdmin(userId, String.valueOf(chatId))) {
                 messageService.sendMessage(chatId, "This command is for admins only!");
                 return;
             }
         }
 
-        Class<?>[] paramTypes = method.getParameterTypes();
-        Object[] args = new Object[paramTypes.length];
-        for (int i = 0; i < paramTypes.length; i++) {
-            if (paramTypes[i].equals(Long.class) && i == 0) {
-                args[i] = chatId;
-            } else if (paramTypes[i].equals(Long.class) && i == 1) {
-                args[i] = userId;
-            } else if (paramTypes[i].equals(MessageService.class)) {
-                args[i] = messageService;
-            } else if (paramTypes[i].equals(KeyboardBuilder.class)) {
-                args[i] = keyboardBuilder;
-            } else if (paramTypes[i].equals(ChatService.class)) {
-                args[i] = chatService;
-            } else if (paramTypes[i].equals(EventLogger.class)) {
-                args[i] = eventLogger;
-            } else {
-                args[i] = null;
+        invoker.invoke(chatId, userId);
+    }
+
+    /**
+     * Invokes a {@link CallbackHandler} with the parameters parsed from the callback data, handling
+     * {@link AdminOnly} restrictions. Unless the handler takes the {@link CallbackQuery} itself, the query
+     * is answered once the handler returns, so the button stops showing its loading indicator.
+     *
+     * @param route The route matching the callback data.
+     * @param query The callback query.
+     */
+    private void invokeCallback(CallbackRoute route, CallbackQuery query) {
+        Long chatId = query.getMessage() != null ? query.getMessage().getChatId() : null;
+        Long userId = query.getFrom().getId();
+        HandlerInvoker invoker = route.invoker();
+
+        LogContext.current().put("userId", userId);
+        if (chatId != null) {
+            activeChats.touch(chatId);
+        }
+        if (invoker.isAdminOnly() && (chatId == null || !chatService.isUserAdmin(userId, String.valueOf(chatId)))) {
+            messageService.answerCallbackQuery(query.getId(), "This command is for admins only!", true);
+            return;
+        }
+
+        try {
+            invoker.invoke(chatId, userId, CallbackParameters.parse(query, route.prefixLength()));
+        } finally {
+            // Answered even if the handler failed, so the button does not keep spinning in the client.
+            if (!invoker.takesCallbackQuery()) {
+                try {
+                    messageService.answerCallbackQuery(query.getId(), null, false);
+                } catch (Exception e) {
+                    eventLogger.logWarning("Could not answer callback query: " + e.getMessage(), "callback_answer");
+                }
             }
         }
+    }
 
-        method.invoke(bot, args);
+    /**
+     * A {@link CallbackHandler} together with the length of its prefix, where its parameters start.
+     *
+     * @param prefixLength The length of the handler's prefix.
+     * @param invoker      The compiled handler.
+     */
+    private record CallbackRoute(int prefixLength, HandlerInvoker invoker) {
     }
 }
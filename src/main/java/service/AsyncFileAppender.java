@@ -0,0 +1,435 @@
+package service;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends log lines to a file on a background thread.
+ * Producers hand lines to a bounded, lock-free ring buffer and return immediately; a single writer
+ * thread drains the buffer into one long-lived, buffered file channel and flushes it in batches,
+ * when enough lines are pending or the flush interval has passed.
+ *
+ * <p>What happens when the ring buffer is full is decided by the {@link OverflowPolicy}. Dropped lines
+ * are counted, and the writer records how many were lost in the file itself.</p>
+ *
+ * <p>A failed write does not stop the writer: it closes the file, discards the lines that may not have reached
+ * it, and reopens the file after a delay that doubles with each consecutive failure, up to 30 seconds. Lines
+ * taken while the file is unavailable are discarded too, so producers never wait on a broken disk; all of
+ * them are counted as dropped.</p>
+ *
+ * <p>The file is rolled when it grows past {@link Options#getMaxFileBytes()} or, if enabled, when the day
+ * changes; both are checked whenever the writer flushes. Rolled files are compressed and pruned by a
+ * {@link LogFileRoller} on its own thread, so neither producers nor the writer wait for it.</p>
+ */
+@Slf4j
+public class AsyncFileAppender implements AutoCloseable {
+
+    /**
+     * Decides what {@link #append(String)} does when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the writer has made room. No line is lost, but producers slow down to disk speed.
+         */
+        BLOCK,
+
+        /**
+         * Discard the line. Producers never wait.
+         */
+        DROP,
+
+        /**
+         * Keep one line in every {@link Options#getSampleRate()} lines, waiting for room for it,
+         * and discard the others.
+         */
+        SAMPLE
+    }
+
+    /**
+     * Configuration options of an {@link AsyncFileAppender}.
+     */
+    @Getter
+    @Setter
+    public static class Options {
+        /**
+         * The number of lines the ring buffer holds; rounded up to a power of two.
+         */
+        private int bufferCapacity = 8_192;
+
+        /**
+         * What to do when the ring buffer is full.
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        /**
+         * Under {@link OverflowPolicy#SAMPLE}, one line in this many is kept while the buffer is full.
+         */
+        private int sampleRate = 100;
+
+        /**
+         * The number of written lines after which the file is flushed.
+         */
+        private int flushBatchSize = 512;
+
+        /**
+         * The longest time a written line stays unflushed.
+         */
+        private long flushIntervalMillis = 200;
+
+        /**
+         * The size of the writer's buffer in bytes.
+         */
+        private int writeBufferBytes = 64 * 1024;
+
+        /**
+         * The size in bytes after which the file is rolled, or {@code 0} to never roll by size.
+         */
+        private long maxFileBytes = 100L * 1024 * 1024;
+
+        /**
+         * Whether the file is rolled when the day changes.
+         */
+        private boolean rollDaily = true;
+
+        /**
+         * Whether rolled files are gzip-compressed in the background.
+         */
+        private boolean compressRolled = true;
+
+        /**
+         * The maximum number of rolled files kept, or {@code 0} for no limit.
+         */
+        private int maxHistory = 30;
+
+        /**
+         * The maximum total size in bytes of the rolled files kept, or {@code 0} for no limit.
+         */
+        private long maxTotalBytes;
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long RETRY_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_MAX_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Path path;
+    private final Options options;
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final Thread writerThread;
+    private final LogFileRoller roller;
+    private long head;
+    private volatile boolean writerParked;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new AsyncFileAppender with default options and starts its writer thread.
+     *
+     * @param path The file to append to; created if missing.
+     */
+    public AsyncFileAppender(Path path) {
+        this(path, new Options());
+    }
+
+    /**
+     * Constructs a new AsyncFileAppender and starts its writer thread.
+     *
+     * @param path    The file to append to; created if missing.
+     * @param options The appender's options.
+     */
+    public AsyncFileAppender(Path path, Options options) {
+        this.path = path;
+        this.options = options;
+        int capacity = Integer.highestOneBit(Math.max(2, options.getBufferCapacity() - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.roller = options.getMaxFileBytes() > 0 || options.isRollDaily()
+                ? new LogFileRoller(path, options.isCompressRolled(), options.getMaxHistory(), options.getMaxTotalBytes())
+                : null;
+        this.writerThread = new Thread(this::drain, "jbotlib-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a line for writing. The line should end with a line separator.
+     *
+     * @param line The line to append.
+     */
+    public void append(String line) {
+        if (!running) {
+            return;
+        }
+        if (offer(line)) {
+            wakeWriter();
+            return;
+        }
+        switch (options.getOverflowPolicy()) {
+            case DROP:
+                dropped.increment();
+                return;
+            case SAMPLE:
+                if (overflowCount.getAndIncrement() % Math.max(1, options.getSampleRate()) != 0) {
+                    dropped.increment();
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        while (!offer(line)) {
+            if (!running) {
+                return;
+            }
+            wakeWriter();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        wakeWriter();
+    }
+
+    /**
+     * Returns the number of lines discarded because the ring buffer was full or the file could not be written.
+     *
+     * @return The number of dropped lines.
+     */
+    public long droppedLines() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting lines, writes and flushes the lines already queued, and closes the file.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (roller != null) {
+            roller.shutdown();
+        }
+    }
+
+    /**
+     * Claims the next slot of the ring buffer, following the bounded multi-producer queue design
+     * where each slot's sequence number tells producers and the consumer whose turn it is.
+     *
+     * @param line The line to store.
+     * @return {@code true} if the line was stored, {@code false} if the buffer is full.
+     */
+    private boolean offer(String line) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, line);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    private void wakeWriter() {
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Returns whether the ring buffer is empty. Only called by the writer thread.
+     *
+     * @return {@code true} if there is no line to take.
+     */
+    private boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    /**
+     * Takes the next line from the ring buffer. Only called by the writer thread.
+     *
+     * @return The next line, or {@code null} if the buffer is empty.
+     */
+    private String poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        String line = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return line;
+    }
+
+    private void drain() {
+        long reportedDrops = 0;
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getFlushIntervalMillis());
+        long lastFlush = System.nanoTime();
+        int unflushed = 0;
+        LocalDate fileDay = LocalDate.now();
+        LocalDate modified = LogFileRoller.lastModifiedDay(path);
+        if (roller != null && options.isRollDaily() && modified != null && !modified.equals(fileDay)) {
+            // The file was left by an earlier day; start today's lines in a fresh file.
+            roll(modified);
+        }
+        FileChannel channel = null;
+        Writer writer = null;
+        long retryDelay = 0;
+        long retryAt = lastFlush;
+
+        try {
+            while (true) {
+                boolean stopping = !running;
+                String line = poll();
+                boolean taken = line != null;
+                long now = System.nanoTime();
+                try {
+                    if (writer == null && now - retryAt >= 0) {
+                        channel = open();
+                        writer = writer(channel);
+                        if (retryDelay > 0) {
+                            log.info("Resumed writing to log file {}", path);
+                            retryDelay = 0;
+                        }
+                    }
+                    if (taken) {
+                        taken = false;
+                        if (writer == null) {
+                            dropped.increment();
+                        } else {
+                            unflushed++;
+                            writer.write(line);
+                        }
+                    }
+
+                    boolean due = writer != null && unflushed > 0 && (unflushed >= options.getFlushBatchSize()
+                            || now - lastFlush >= flushIntervalNanos || (line == null && stopping));
+                    if (due) {
+                        long drops = dropped.sum();
+                        if (drops != reportedDrops) {
+                            writer.write("[appender] " + (drops - reportedDrops) + " log lines dropped"
+                                    + System.lineSeparator());
+                            reportedDrops = drops;
+                        }
+                        writer.flush();
+                        unflushed = 0;
+                        lastFlush = now;
+
+                        LocalDate today = LocalDate.now();
+                        if (shouldRoll(channel, fileDay, today)) {
+                            writer.close();
+                            writer = null;
+                            roll(fileDay);
+                            channel = open();
+                            writer = writer(channel);
+                            fileDay = today;
+                        }
+                    }
+                } catch (IOException e) {
+                    // The lines written since the last flush may not have reached the file.
+                    dropped.add(unflushed + (taken ? 1 : 0));
+                    unflushed = 0;
+                    closeQuietly(writer != null ? writer : channel);
+                    writer = null;
+                    channel = null;
+                    retryDelay = retryDelay == 0 ? RETRY_MIN_NANOS : Math.min(RETRY_MAX_NANOS, retryDelay * 2);
+                    retryAt = now + retryDelay;
+                    log.error("Failed to write to log file {}, retrying in {} ms: {}", path,
+                            TimeUnit.NANOSECONDS.toMillis(retryDelay), e.getMessage(), e);
+                }
+
+                if (line == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    // Producers unpark the writer once it has announced itself parked; the emptiness
+                    // re-check after the announcement closes the race with a line added in between.
+                    writerParked = true;
+                    if (isEmpty() && running) {
+                        LockSupport.parkNanos(writer == null ? Math.max(1, Math.min(IDLE_PARK_NANOS, retryAt - now))
+                                : unflushed > 0 ? Math.max(1, flushIntervalNanos - (now - lastFlush))
+                                : IDLE_PARK_NANOS);
+                    }
+                    writerParked = false;
+                }
+            }
+        } finally {
+            closeQuietly(writer != null ? writer : channel);
+        }
+    }
+
+    private boolean shouldRoll(FileChannel channel, LocalDate fileDay, LocalDate today) throws IOException {
+        if (roller == null) {
+            return false;
+        }
+        return options.isRollDaily() && !today.equals(fileDay)
+                || options.getMaxFileBytes() > 0 && channel.size() >= options.getMaxFileBytes();
+    }
+
+    /**
+     * Rolls the closed file. A failed roll is logged and writing continues in the same file,
+     * so a rename problem never stops the log.
+     */
+    private void roll(LocalDate day) {
+        try {
+            roller.roll(day);
+        } catch (IOException e) {
+            log.error("Failed to roll log file {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Writer writer(FileChannel channel) {
+        return new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8),
+                options.getWriteBufferBytes());
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Failed to close log file: {}", e.getMessage());
+        }
+    }
+}
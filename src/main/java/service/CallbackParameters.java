@@ -0,0 +1,76 @@
+package service;
+
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+
+/**
+ * The parameters of a callback query routed to a {@link annotations.CallbackHandler}: the query itself and the
+ * parts of its callback data after the handler's prefix, split at {@code ':'}. The accessors are bound into the
+ * handler's {@link HandlerInvoker} at registration, so each parameter costs a single array read at dispatch.
+ */
+final class CallbackParameters {
+    private static final char SEPARATOR = ':';
+    private static final String[] NO_PARTS = new String[0];
+
+    private final CallbackQuery query;
+    private final String[] parts;
+
+    private CallbackParameters(CallbackQuery query, String[] parts) {
+        this.query = query;
+        this.parts = parts;
+    }
+
+    /**
+     * Splits the callback data of a query after the given prefix length.
+     *
+     * @param query        The callback query.
+     * @param prefixLength The length of the matched handler prefix.
+     * @return The parameters of the query.
+     */
+    static CallbackParameters parse(CallbackQuery query, int prefixLength) {
+        String data = query.getData();
+        if (data == null || data.length() <= prefixLength) {
+            return new CallbackParameters(query, NO_PARTS);
+        }
+        int count = 1;
+        for (int i = prefixLength; i < data.length(); i++) {
+            if (data.charAt(i) == SEPARATOR) {
+                count++;
+            }
+        }
+        String[] parts = new String[count];
+        int start = prefixLength;
+        for (int i = 0; i < count - 1; i++) {
+            int end = data.indexOf(SEPARATOR, start);
+            parts[i] = data.substring(start, end);
+            start = end + 1;
+        }
+        parts[count - 1] = data.substring(start);
+        return new CallbackParameters(query, parts);
+    }
+
+    static CallbackQuery query(CallbackParameters parameters) {
+        return parameters != null ? parameters.query : null;
+    }
+
+    static String string(CallbackParameters parameters, int index) {
+        return parameters != null && index < parameters.parts.length ? parameters.parts[index] : null;
+    }
+
+    static Integer integer(CallbackParameters parameters, int index) {
+        String part = string(parameters, index);
+        try {
+            return part != null ? Integer.valueOf(part) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static Long longValue(CallbackParameters parameters, int index) {
+        String part = string(parameters, index);
+        try {
+            return part != null ? Long.valueOf(part) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
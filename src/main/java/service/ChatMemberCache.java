@@ -0,0 +1,243 @@
+package service;
+
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, concurrent cache of chat member lookups, keyed by chat and user.
+ * Each entry expires after a TTL chosen by the member's status: members, admins and restricted users
+ * use the positive TTL, while users who left or were banned use the (usually shorter) negative TTL.
+ * When the cache is full, the oldest entries are evicted first.
+ *
+ * <p>A lookup that went to Telegram only stores its result if the entry it found is still the current one
+ * when the load returns, so a member stored by a chat member update during the load is not overwritten with
+ * the older status the load fetched.</p>
+ *
+ * <p>Hits, misses and evictions are counted and can be read with {@link #stats()}.</p>
+ */
+public class ChatMemberCache {
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ReentrantLock compacting = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxSize;
+
+    /**
+     * Constructs a new ChatMemberCache instance.
+     *
+     * @param positiveTtl How long members, admins and restricted users are cached.
+     * @param negativeTtl How long users who left or were banned are cached.
+     * @param maxSize     The maximum number of cached entries.
+     */
+    public ChatMemberCache(Duration positiveTtl, Duration negativeTtl, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.positiveTtlNanos = positiveTtl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached member for the given chat and user, loading and caching it on a miss or after expiry.
+     *
+     * @param chat   The resolved chat ID or username.
+     * @param userId The ID of the user.
+     * @param loader Loads the member from Telegram.
+     * @return The chat member.
+     */
+    public ChatMember get(String chat, long userId, Supplier<ChatMember> loader) {
+        Key key = new Key(chat, userId);
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null && entry.expiresAt - now > 0) {
+            hits.increment();
+            return entry.member;
+        }
+        misses.increment();
+        ChatMember member = loader.get();
+        Entry loaded = newEntry(key, member, now);
+        if (loaded != null && (entry == null ? entries.putIfAbsent(key, loaded) == null
+                : entries.replace(key, entry, loaded))) {
+            added(loaded);
+        }
+        return member;
+    }
+
+    /**
+     * Stores a member that is already known, for example from a chat member update.
+     *
+     * @param chat   The resolved chat ID or username.
+     * @param userId The ID of the user.
+     * @param member The current chat member.
+     */
+    public void put(String chat, long userId, ChatMember member) {
+        put(new Key(chat, userId), member, System.nanoTime());
+    }
+
+    /**
+     * Removes the cached member for the given chat and user.
+     *
+     * @param chat   The resolved chat ID or username.
+     * @param userId The ID of the user.
+     */
+    public void invalidate(String chat, long userId) {
+        entries.remove(new Key(chat, userId));
+    }
+
+    /**
+     * Removes every cached member.
+     */
+    public void clear() {
+        compacting.lock();
+        try {
+            entries.clear();
+            insertionOrder.clear();
+            queued.set(0);
+        } finally {
+            compacting.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache's statistics.
+     *
+     * @return The current statistics.
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    private void put(Key key, ChatMember member, long now) {
+        Entry entry = newEntry(key, member, now);
+        if (entry == null) {
+            // Not cached under its TTL, but an older status must not stay cached either.
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, entry);
+        added(entry);
+    }
+
+    private Entry newEntry(Key key, ChatMember member, long now) {
+        long ttl = isNegative(member) ? negativeTtlNanos : positiveTtlNanos;
+        return ttl > 0 ? new Entry(key, member, now + ttl) : null;
+    }
+
+    /**
+     * Queues a newly stored entry for eviction and evicts the oldest entries if the cache is over its size.
+     *
+     * @param entry The stored entry.
+     */
+    private void added(Entry entry) {
+        insertionOrder.add(entry);
+        if (queued.incrementAndGet() > 2 * maxSize) {
+            compact();
+        }
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Evicts entries in insertion order until the cache is within its size. Queued entries that were
+     * already replaced or invalidated are dropped without touching the current mapping.
+     */
+    private void evict() {
+        while (entries.size() > maxSize) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (entries.remove(oldest.key, oldest)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops queued entries that are no longer cached, so refreshes and invalidations cannot grow
+     * the eviction queue beyond twice the cache size.
+     */
+    private void compact() {
+        if (!compacting.tryLock()) {
+            return;
+        }
+        try {
+            for (int i = queued.get(); i > 0; i--) {
+                Entry entry = insertionOrder.poll();
+                if (entry == null) {
+                    return;
+                }
+                if (entries.get(entry.key) == entry) {
+                    insertionOrder.add(entry);
+                } else {
+                    queued.decrementAndGet();
+                }
+            }
+        } finally {
+            compacting.unlock();
+        }
+    }
+
+    private static boolean isNegative(ChatMember member) {
+        String status = member.getStatus();
+        return "left".equals(status) || "kicked".equals(status);
+    }
+
+    /**
+     * A snapshot of the cache's statistics.
+     *
+     * @param hits      The number of lookups answered from the cache.
+     * @param misses    The number of lookups that went to Telegram.
+     * @param evictions The number of entries evicted to stay within the size limit.
+     * @param size      The number of entries currently cached.
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+        /**
+         * Returns the share of lookups answered from the cache.
+         *
+         * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private record Key(String chat, long userId) {
+        private Key {
+            Objects.requireNonNull(chat);
+        }
+    }
+
+    /**
+     * A cached member. Entries compare by identity, so a queued entry only matches the mapping it was created for.
+     */
+    private static final class Entry {
+        private final Key key;
+        private final ChatMember member;
+        private final long expiresAt;
+
+        private Entry(Key key, ChatMember member, long expiresAt) {
+            this.key = key;
+            this.member = member;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,11 +3,13 @@ package service;
 import exceptions.BotNotAdminException;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
 import org.telegram.telegrambots.meta.api.methods.GetMe;
 import org.telegram.telegrambots.meta.api.methods.groupadministration.*;
 import org.telegram.telegrambots.meta.api.methods.pinnedmessages.PinChatMessage;
 import org.telegram.telegrambots.meta.api.methods.pinnedmessages.UnpinChatMessage;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.ChatMemberUpdated;
 import org.telegram.telegrambots.meta.api.objects.ChatPermissions;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.User;
@@ -16,6 +18,7 @@ import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberAdministr
 import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberOwner;
 import utils.Resolvers;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -29,20 +32,94 @@ import java.util.List;
  * the bot has the necessary permissions before performing actions. It throws a
  * {@link BotNotAdminException} if the bot lacks admin privileges in the specified chat.</p>
  *
+ * <p>Admin and membership checks can be answered from a {@link ChatMemberCache}, so repeated
+ * checks for the same chat and user do not each cost a {@code getChatMember} request.</p>
+ *
  * @author [Jahongir]
  * @version 1.0.0
  */
 @Slf4j
 public class ChatService {
-    private final TelegramLongPollingBot bot;
+    private final DefaultAbsSender bot;
+    private final ChatMemberCache memberCache;
+    private final DelayedActionStore delayedActions;
+    private volatile User botUser;
+
+    /**
+     * Constructs a new ChatService instance that looks up chat members without caching.
+     *
+     * @param bot The bot instance used to execute API requests.
+     */
+    public ChatService(DefaultAbsSender bot) {
+        this(bot, null);
+    }
+
+    /**
+     * Constructs a new ChatService instance that caches chat member lookups.
+     * Admin and membership checks are then answered from the cache until its entries expire.
+     *
+     * @param bot         The bot instance used to execute API requests.
+     * @param memberCache The cache of chat member lookups, or {@code null} to disable caching.
+     */
+    public ChatService(DefaultAbsSender bot, ChatMemberCache memberCache) {
+        this(bot, memberCache, null);
+    }
 
     /**
-     * Constructs a new ChatService instance.
+     * Constructs a new ChatService instance that caches chat member lookups and keeps delayed
+     * unrestrictions in the given store, so they survive a restart.
      *
-     * @param bot The TelegramLongPollingBot instance used to execute API requests.
+     * @param bot            The bot instance used to execute API requests.
+     * @param memberCache    The cache of chat member lookups, or {@code null} to disable caching.
+     * @param delayedActions The store keeping delayed unrestrictions, or {@code null} if they are not needed.
+     *                       Its performer for {@link DelayedActionStore.Kind#UNRESTRICT_MEMBER} must be
+     *                       registered by the caller.
      */
-    public ChatService(TelegramLongPollingBot bot) {
+    public ChatService(DefaultAbsSender bot, ChatMemberCache memberCache, DelayedActionStore delayedActions) {
         this.bot = bot;
+        this.memberCache = memberCache;
+        this.delayedActions = delayedActions;
+    }
+
+    /**
+     * Returns the cache of chat member lookups, for example to read its statistics.
+     *
+     * @return The cache, or {@code null} if caching is disabled.
+     */
+    public ChatMemberCache getMemberCache() {
+        return memberCache;
+    }
+
+    /**
+     * Returns the bot's own user. It is resolved with {@link GetMe} on first use and cached afterwards,
+     * so admin checks do not repeat the request.
+     *
+     * @return The bot's user.
+     */
+    public User getBotUser() {
+        User user = botUser;
+        if (user == null) {
+            synchronized (this) {
+                user = botUser;
+                if (user == null) {
+                    user = refreshBotUser();
+                }
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Resolves the bot's own user with {@link GetMe} and replaces the cached one,
+     * for example after the bot's name or username was changed.
+     *
+     * @return The bot's user.
+     */
+    @SneakyThrows
+    public User refreshBotUser() {
+        User user = bot.execute(new GetMe());
+        botUser = user;
+        return user;
     }
 
     /**
@@ -53,14 +130,7 @@ public class ChatService {
      */
     @SneakyThrows
     public boolean isBotAdmin(String chat) {
-        User botUser = bot.execute(new GetMe());
-        Long botId = botUser.getId();
-
-        GetChatMember getChatMember = new GetChatMember();
-        getChatMember.setChatId(Resolvers.linkResolver(chat));
-        getChatMember.setUserId(botId);
-
-        ChatMember member = bot.execute(getChatMember);
+        ChatMember member = getChatMember(Resolvers.linkResolver(chat), getBotUser().getId());
 
         return (member instanceof ChatMemberAdministrator) || (member instanceof ChatMemberOwner);
     }
@@ -73,15 +143,10 @@ public class ChatService {
      */
     @SneakyThrows
     public boolean isBotAdmin(List<String> chats) {
-        User botUser = bot.execute(new GetMe());
-        Long botId = botUser.getId();
-
-        GetChatMember getChatMember = new GetChatMember();
-        getChatMember.setUserId(botId);
+        Long botId = getBotUser().getId();
 
         for (String s : chats) {
-            getChatMember.setChatId(Resolvers.linkResolver(s));
-            ChatMember member = bot.execute(getChatMember);
+            ChatMember member = getChatMember(Resolvers.linkResolver(s), botId);
 
             if (!(member instanceof ChatMemberAdministrator)) {
                 return false;
@@ -101,10 +166,7 @@ public class ChatService {
     @SneakyThrows
     public boolean isChatMember(Long userId, String chat) {
         if (isBotAdmin(chat)) {
-            ChatMember execute = bot.execute(GetChatMember.builder()
-                    .chatId(Resolvers.linkResolver(chat))
-                    .userId(userId)
-                    .build());
+            ChatMember execute = getChatMember(Resolvers.linkResolver(chat), userId);
 
             return execute.getStatus().equals("member");
         } else {
@@ -124,10 +186,7 @@ public class ChatService {
     public boolean isChatMember(Long userId, List<String> chats) {
         for (String chat : chats) {
             if (isBotAdmin(chat)) {
-                ChatMember execute = bot.execute(GetChatMember.builder()
-                        .chatId(Resolvers.linkResolver(chat))
-                        .userId(userId)
-                        .build());
+                ChatMember execute = getChatMember(Resolvers.linkResolver(chat), userId);
 
                 if (execute.getStatus().equals("member")) {
                     return true;
@@ -148,11 +207,7 @@ public class ChatService {
      */
     @SneakyThrows
     public boolean isUserAdmin(Long userId, String chat) {
-        GetChatMember getChatMember = new GetChatMember();
-        getChatMember.setChatId(Resolvers.linkResolver(chat));
-        getChatMember.setUserId(userId);
-
-        ChatMember member = bot.execute(getChatMember);
+        ChatMember member = getChatMember(Resolvers.linkResolver(chat), userId);
 
         return (member instanceof ChatMemberAdministrator) || (member instanceof ChatMemberOwner);
     }
@@ -211,6 +266,24 @@ public class ChatService {
         }
     }
 
+    /**
+     * Unrestricts a chat member once the given delay has passed, for example to lift restrictions that were set
+     * without an end date. Restrictions set with {@link #restrictChatMember(Long, String, Integer, ChronoUnit)}
+     * are lifted by Telegram itself and do not need this.
+     *
+     * @param chatId The ID of the user to unrestrict.
+     * @param chat   The chat ID or link (resolved using {@link Resolvers#linkResolver}).
+     * @param delay  The delay after which the user is unrestricted.
+     * @return The handle of the unrestriction, which can cancel it until it happens.
+     * @throws IllegalStateException If this service has no {@link DelayedActionStore}.
+     */
+    public DelayedAction unrestrictChatMemberLater(Long chatId, String chat, Duration delay) {
+        if (delayedActions == null) {
+            throw new IllegalStateException("Delayed unrestrictions need a ChatService with a DelayedActionStore");
+        }
+        return delayedActions.schedule(DelayedActionStore.Kind.UNRESTRICT_MEMBER, 0, chatId, chat, delay);
+    }
+
     /**
      * Sets a new photo for the specified chat.
      *
@@ -315,4 +388,48 @@ public class ChatService {
             throw new BotNotAdminException("Bot is not admin of this chat: " + chat);
         }
     }
+
+    /**
+     * Applies a chat member change reported by Telegram to the member cache, so admin and membership
+     * checks reflect promotions, restrictions, bans and leaves without waiting for the entry to expire.
+     * Handles both {@code my_chat_member} updates (about the bot) and {@code chat_member} updates
+     * (about other users, delivered only when requested through {@code allowed_updates}).
+     *
+     * @param change The chat member change from the update.
+     */
+    public void onChatMemberUpdated(ChatMemberUpdated change) {
+        if (memberCache == null || change.getNewChatMember() == null) {
+            return;
+        }
+        ChatMember member = change.getNewChatMember();
+        Long userId = member.getUser().getId();
+        Chat chat = change.getChat();
+
+        memberCache.put(String.valueOf(chat.getId()), userId, member);
+        if (chat.getUserName() != null) {
+            memberCache.put("@" + chat.getUserName(), userId, member);
+        }
+    }
+
+    /**
+     * Looks up a chat member, answering from the member cache when caching is enabled.
+     *
+     * @param chat   The resolved chat ID or username.
+     * @param userId The ID of the user.
+     * @return The chat member.
+     */
+    private ChatMember getChatMember(String chat, Long userId) {
+        if (memberCache == null) {
+            return fetchChatMember(chat, userId);
+        }
+        return memberCache.get(chat, userId, () -> fetchChatMember(chat, userId));
+    }
+
+    @SneakyThrows
+    private ChatMember fetchChatMember(String chat, Long userId) {
+        return bot.execute(GetChatMember.builder()
+                .chatId(chat)
+                .userId(userId)
+                .build());
+    }
 }
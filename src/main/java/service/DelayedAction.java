@@ -0,0 +1,58 @@
+package service;
+
+/**
+ * The handle of an action scheduled to run later, such as a message deleted with
+ * {@link MessageService#deleteMessageLater}. Cancelling the handle stops the action from running and,
+ * for an action kept in a {@link DelayedActionStore}, removes it from the store as well.
+ */
+public final class DelayedAction {
+    private final DelayedActionStore store;
+    private final long id;
+    private final TimerService.Timeout timeout;
+
+    /**
+     * Constructs a new DelayedAction instance.
+     *
+     * @param store   The store keeping the action, or {@code null} if it is kept in memory only.
+     * @param id      The ID of the action in the store, or {@code 0} if it is kept in memory only.
+     * @param timeout The timer running the action.
+     */
+    DelayedAction(DelayedActionStore store, long id, TimerService.Timeout timeout) {
+        this.store = store;
+        this.id = id;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the ID of the action in its store.
+     *
+     * @return The ID, or {@code 0} if the action is kept in memory only.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Cancels the action, so it does not run.
+     *
+     * @return {@code true} if the action was pending, {@code false} if it already ran or was cancelled.
+     */
+    public boolean cancel() {
+        if (!timeout.cancel()) {
+            return false;
+        }
+        if (store != null) {
+            store.complete(id);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the action is still waiting to run.
+     *
+     * @return {@code true} if the action is pending.
+     */
+    public boolean isPending() {
+        return !timeout.isExpired() && !timeout.isCancelled();
+    }
+}
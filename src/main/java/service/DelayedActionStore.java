@@ -0,0 +1,443 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Runs delayed actions, such as deleting a message or lifting a restriction later, on a {@link TimerService}
+ * and keeps the pending ones in an append-only log file, so they survive a restart.
+ * Actions are plain data of a {@link Kind}; the code that performs each kind is registered with
+ * {@link #register(Kind, Consumer)} or {@link #registerAsync(Kind, Function)}, and actions loaded from the log
+ * are scheduled again by {@link #start()}.
+ *
+ * <p>Scheduling an action appends a record, and running or cancelling it appends a completion record.
+ * Records carry a length and a CRC32, so a record torn by a crash is detected and cut off on load. The log
+ * is forced to disk in batches, once per sync interval, and is compacted down to the pending actions once
+ * completed ones make up most of it; compaction writes a temporary file and atomically moves it into place.</p>
+ *
+ * <p>An action that was due while the bot was down runs right after {@link #start()}. Actions of the kind
+ * {@link Kind#SEND_MESSAGE} are completed before they run, so a crash never sends a message twice; the other
+ * kinds are idempotent and are completed after they run, or after the future of an asynchronous performer
+ * completes, so a crash never loses them. A record of a kind this version does not know is kept as it is,
+ * with a warning, so it survives compaction and runs once a version that knows its kind opens the log.</p>
+ *
+ * <p>Compaction starts the log with a completion record for the last ID handed out, which no pending action
+ * has, so IDs are never reused even when no record of a recent action survives.</p>
+ *
+ * <p>Timed restrictions set with {@code until_date} do not need this: Telegram lifts them itself.</p>
+ */
+@Slf4j
+public class DelayedActionStore {
+    private static final byte SCHEDULED = 1;
+    private static final byte COMPLETED = 2;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MIN_COMPACTION_RECORDS = 1_000;
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * The kinds of delayed actions.
+     */
+    public enum Kind {
+        /**
+         * Deletes message {@link Action#target()} in chat {@link Action#chatId()}.
+         */
+        DELETE_MESSAGE,
+        /**
+         * Sends {@link Action#text()} to chat {@link Action#chatId()}.
+         */
+        SEND_MESSAGE,
+        /**
+         * Lifts the restrictions of user {@link Action#target()} in the chat given by {@link Action#text()}.
+         */
+        UNRESTRICT_MEMBER
+    }
+
+    /**
+     * A pending delayed action.
+     *
+     * @param id     The ID of the action.
+     * @param kind   The kind of the action.
+     * @param dueAt  When the action is due, in epoch milliseconds.
+     * @param chatId The chat the action is addressed to, or {@code 0}.
+     * @param target The message or user the action applies to, or {@code 0}.
+     * @param text   The text or chat reference of the action, or {@code null}.
+     */
+    public record Action(long id, Kind kind, long dueAt, long chatId, long target, String text) {
+    }
+
+    private final Path file;
+    private final TimerService timerService;
+    private final Map<Long, Action> pending = new ConcurrentHashMap<>();
+    private final Map<Long, ByteBuffer> unknown = new HashMap<>();
+    private final Map<Kind, Function<Action, CompletableFuture<?>>> performers = new EnumMap<>(Kind.class);
+    private final Object writeLock = new Object();
+    private final ScheduledExecutorService syncer;
+    private FileChannel channel;
+    private long nextId = 1;
+    private long records;
+    private boolean dirty;
+
+    /**
+     * Constructs a new DelayedActionStore instance that keeps its actions in memory only.
+     *
+     * @param timerService The TimerService running the actions.
+     */
+    public DelayedActionStore(TimerService timerService) {
+        this(timerService, null, null);
+    }
+
+    /**
+     * Constructs a new DelayedActionStore instance and loads the pending actions from the given log file.
+     *
+     * @param timerService The TimerService running the actions.
+     * @param file         The log file, or {@code null} to keep the actions in memory only.
+     * @param syncInterval How often appended records are forced to disk.
+     * @throws UncheckedIOException If the log file cannot be opened.
+     */
+    public DelayedActionStore(TimerService timerService, Path file, Duration syncInterval) {
+        this.timerService = timerService;
+        this.file = file;
+        if (file == null) {
+            this.syncer = null;
+            return;
+        }
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open delayed action log " + file, e);
+        }
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jbotlib-delayed-actions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, syncInterval.toMillis());
+        syncer.scheduleWithFixedDelay(this::maintain, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the code performing actions of the given kind. Must be called before {@link #start()}.
+     *
+     * @param kind      The kind of action.
+     * @param performer Performs an action of that kind.
+     */
+    public void register(Kind kind, Consumer<Action> performer) {
+        registerAsync(kind, action -> {
+            performer.accept(action);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Registers code performing actions of the given kind without blocking, such as an asynchronous API
+     * request. Must be called before {@link #start()}.
+     *
+     * @param kind      The kind of action.
+     * @param performer Starts an action of that kind and returns a future completing once it is done.
+     */
+    public synchronized void registerAsync(Kind kind, Function<Action, CompletableFuture<?>> performer) {
+        performers.put(kind, performer);
+    }
+
+    /**
+     * Schedules the actions loaded from the log. Actions already due run right away.
+     */
+    public void start() {
+        long now = System.currentTimeMillis();
+        for (Action action : pending.values()) {
+            timerService.schedule(() -> perform(action), Math.max(0, action.dueAt() - now), TimeUnit.MILLISECONDS);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Restored {} delayed actions from {}", pending.size(), file);
+        }
+    }
+
+    /**
+     * Schedules an action and records it in the log.
+     *
+     * @param kind   The kind of the action.
+     * @param chatId The chat the action is addressed to, or {@code 0}.
+     * @param target The message or user the action applies to, or {@code 0}.
+     * @param text   The text or chat reference of the action, or {@code null}.
+     * @param delay  The delay after which the action runs.
+     * @return The handle of the action.
+     */
+    public DelayedAction schedule(Kind kind, long chatId, long target, String text, Duration delay) {
+        Action action;
+        synchronized (writeLock) {
+            action = new Action(nextId++, kind, System.currentTimeMillis() + delay.toMillis(), chatId, target, text);
+            pending.put(action.id(), action);
+            append(scheduledRecord(action));
+        }
+        TimerService.Timeout timeout = timerService.schedule(() -> perform(action), delay);
+        return new DelayedAction(this, action.id(), timeout);
+    }
+
+    /**
+     * Cancels a pending action by its ID, for example one restored from the log, whose handle is gone.
+     *
+     * @param id The ID of the action, as returned by {@link DelayedAction#getId()}.
+     * @return {@code true} if the action was pending.
+     */
+    public boolean cancel(long id) {
+        return complete(id);
+    }
+
+    /**
+     * Returns the number of actions waiting to run.
+     *
+     * @return The number of pending actions.
+     */
+    public int pendingActions() {
+        return pending.size();
+    }
+
+    /**
+     * Marks an action as done, so it is not run again after a restart.
+     *
+     * @param id The ID of the action.
+     * @return {@code true} if the action was pending.
+     */
+    boolean complete(long id) {
+        synchronized (writeLock) {
+            if (pending.remove(id) == null) {
+                return false;
+            }
+            append(completedRecord(id));
+            return true;
+        }
+    }
+
+    /**
+     * Forces the log to disk and stops the background syncing. Pending actions stay in the log.
+     */
+    public void close() {
+        if (syncer == null) {
+            return;
+        }
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            try {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            } catch (IOException e) {
+                log.error("Failed to close delayed action log {}: {}", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void perform(Action action) {
+        Function<Action, CompletableFuture<?>> performer;
+        synchronized (this) {
+            performer = performers.get(action.kind());
+        }
+        if (performer == null) {
+            log.warn("No performer registered for delayed action {} of kind {}", action.id(), action.kind());
+            return;
+        }
+        boolean atMostOnce = action.kind() == Kind.SEND_MESSAGE;
+        if (atMostOnce ? !complete(action.id()) : !pending.containsKey(action.id())) {
+            return;
+        }
+        CompletableFuture<?> result;
+        try {
+            result = performer.apply(action);
+        } catch (RuntimeException | Error e) {
+            if (!atMostOnce) {
+                complete(action.id());
+            }
+            throw e;
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                log.error("Delayed action {} of kind {} failed: {}", action.id(), action.kind(), error.getMessage(), error);
+            }
+            if (!atMostOnce) {
+                complete(action.id());
+            }
+        });
+    }
+
+    private void append(ByteBuffer payload) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            writeRecord(channel, payload);
+            records++;
+            dirty = true;
+        } catch (IOException e) {
+            log.error("Failed to append to delayed action log {}: {}", file, e.getMessage(), e);
+        }
+    }
+
+    private static void writeRecord(FileChannel target, ByteBuffer payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES)
+                .putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+        target.write(new ByteBuffer[]{header, payload});
+    }
+
+    private static ByteBuffer completedRecord(long id) {
+        return ByteBuffer.allocate(9).put(COMPLETED).putLong(id).flip();
+    }
+
+    private static ByteBuffer scheduledRecord(Action action) {
+        byte[] text = action.text() != null ? action.text().getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer buffer = ByteBuffer.allocate(38 + (text != null ? text.length : 0))
+                .put(SCHEDULED).putLong(action.id()).putLong(action.dueAt())
+                .put((byte) action.kind().ordinal()).putLong(action.chatId()).putLong(action.target())
+                .putInt(text != null ? text.length : -1);
+        if (text != null) {
+            buffer.put(text);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Forces appended records to disk and compacts the log once completed actions make up most of it.
+     */
+    private void maintain() {
+        synchronized (writeLock) {
+            try {
+                if (records > MIN_COMPACTION_RECORDS && records > 2L * (pending.size() + unknown.size())) {
+                    compact();
+                } else if (dirty) {
+                    channel.force(false);
+                }
+                dirty = false;
+            } catch (IOException e) {
+                log.error("Failed to sync delayed action log {}: {}", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the log with the ID counter, the pending actions and the records of unknown kinds. The compacted
+     * log replaces the current one only once it was moved into place; if anything fails before that, appending
+     * continues in the current log.
+     */
+    private void compact() throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel compacted = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        long written = 0;
+        try {
+            // Loaded before any scheduled record, so it cannot complete a pending action.
+            writeRecord(compacted, completedRecord(nextId - 1));
+            written++;
+            for (Action action : pending.values()) {
+                writeRecord(compacted, scheduledRecord(action));
+                written++;
+            }
+            for (ByteBuffer record : unknown.values()) {
+                writeRecord(compacted, record.duplicate());
+                written++;
+            }
+            compacted.force(false);
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            try {
+                compacted.close();
+                Files.deleteIfExists(tempFile);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        FileChannel previous = channel;
+        channel = compacted;
+        records = written;
+        previous.close();
+    }
+
+    private void load() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        long valid = 0;
+        while (data.remaining() >= RECORD_HEADER_BYTES) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 9 || length > data.remaining()) {
+                break;
+            }
+            ByteBuffer payload = data.slice(data.position(), length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            data.position(data.position() + length);
+            readRecord(payload);
+            valid = data.position();
+            records++;
+        }
+        if (valid < channel.size()) {
+            log.warn("Truncating {} bytes of a torn record from delayed action log {}", channel.size() - valid, file);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+    }
+
+    private void readRecord(ByteBuffer payload) {
+        ByteBuffer record = payload.duplicate();
+        byte op = payload.get();
+        long id = payload.getLong();
+        nextId = Math.max(nextId, id + 1);
+        if (op == COMPLETED) {
+            pending.remove(id);
+            unknown.remove(id);
+            return;
+        }
+        long dueAt = payload.getLong();
+        int ordinal = payload.get();
+        if (ordinal < 0 || ordinal >= KINDS.length) {
+            log.warn("Keeping delayed action {} of unknown kind {} in {}", id, ordinal, file);
+            unknown.put(id, ByteBuffer.allocate(record.remaining()).put(record).flip());
+            return;
+        }
+        Kind kind = KINDS[ordinal];
+        long chatId = payload.getLong();
+        long target = payload.getLong();
+        int textLength = payload.getInt();
+        String text = null;
+        if (textLength >= 0) {
+            byte[] bytes = new byte[textLength];
+            payload.get(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        pending.put(id, new Action(id, kind, dueAt, chatId, target, text));
+    }
+}
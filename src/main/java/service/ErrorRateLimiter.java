@@ -0,0 +1,155 @@
+package service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Limits how often the same error is reported in full.
+ * Errors are grouped by a fingerprint of their exception type, their top stack frames and the context they were
+ * logged in. Within each window, the first occurrences of a group are reported in full and later ones are only
+ * counted; the counts are handed out as {@link Summary summaries} by {@link #drain(Consumer)}.
+ *
+ * <p>This keeps the cost of error logging bounded when many handlers fail the same way at once, for example
+ * while Telegram is unreachable.</p>
+ */
+public class ErrorRateLimiter {
+    private static final int FINGERPRINT_FRAMES = 5;
+    private static final int MAX_GROUPS = 10_000;
+
+    private final int fullReportsPerWindow;
+    private final long windowNanos;
+    private final Map<Fingerprint, Group> groups = new ConcurrentHashMap<>();
+
+    /**
+     * A number of suppressed occurrences of one error.
+     *
+     * @param context       The context the error was logged in.
+     * @param exceptionType The class name of the exception.
+     * @param message       The message of the latest suppressed occurrence.
+     * @param suppressed    The number of occurrences that were not reported in full.
+     * @param period        The period over which they were counted.
+     */
+    public record Summary(String context, String exceptionType, String message, long suppressed, Duration period) {
+    }
+
+    /**
+     * Constructs a new ErrorRateLimiter instance.
+     *
+     * @param fullReportsPerWindow How many occurrences of the same error are reported in full per window.
+     * @param window               The length of a window.
+     */
+    public ErrorRateLimiter(int fullReportsPerWindow, Duration window) {
+        if (fullReportsPerWindow < 1 || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("At least one report per positive window is required");
+        }
+        this.fullReportsPerWindow = fullReportsPerWindow;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Returns the length of a window.
+     *
+     * @return The window.
+     */
+    public Duration getWindow() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    /**
+     * Counts an occurrence of an error and decides whether it is reported in full.
+     *
+     * @param e       The exception.
+     * @param context The context the error was logged in.
+     * @return {@code true} if the error should be reported in full, {@code false} if it was counted for a summary.
+     */
+    public boolean tryAcquire(Throwable e, String context) {
+        Fingerprint fingerprint = Fingerprint.of(e, context);
+        Group group = groups.get(fingerprint);
+        if (group == null) {
+            if (groups.size() >= MAX_GROUPS) {
+                // Too many distinct errors to track; report rather than silently drop them.
+                return true;
+            }
+            group = groups.computeIfAbsent(fingerprint, key -> new Group(context, e.getClass().getName()));
+        }
+        return group.acquire(e, System.nanoTime());
+    }
+
+    /**
+     * Closes every window that has ended, passing a summary of each group with suppressed occurrences
+     * to the given consumer, and forgets groups that have been quiet for a whole window.
+     *
+     * @param consumer The consumer of the summaries.
+     */
+    public void drain(Consumer<Summary> consumer) {
+        long now = System.nanoTime();
+        for (Iterator<Group> it = groups.values().iterator(); it.hasNext(); ) {
+            Group group = it.next();
+            Summary summary;
+            synchronized (group) {
+                if (now - group.windowStart < windowNanos) {
+                    continue;
+                }
+                summary = group.suppressed > 0
+                        ? new Summary(group.context, group.exceptionType, group.lastMessage, group.suppressed,
+                        Duration.ofNanos(now - group.windowStart))
+                        : null;
+                if (summary == null && now - group.lastSeen >= windowNanos) {
+                    it.remove();
+                    continue;
+                }
+                group.windowStart = now;
+                group.reported = 0;
+                group.suppressed = 0;
+            }
+            if (summary != null) {
+                consumer.accept(summary);
+            }
+        }
+    }
+
+    private final class Group {
+        private final String context;
+        private final String exceptionType;
+        private long windowStart = System.nanoTime();
+        private long lastSeen;
+        private int reported;
+        private long suppressed;
+        private String lastMessage;
+
+        private Group(String context, String exceptionType) {
+            this.context = context;
+            this.exceptionType = exceptionType;
+        }
+
+        private synchronized boolean acquire(Throwable e, long now) {
+            lastSeen = now;
+            // A window with suppressed occurrences stays open until drain() has summarized it.
+            if (suppressed == 0 && now - windowStart >= windowNanos) {
+                windowStart = now;
+                reported = 0;
+            }
+            if (reported < fullReportsPerWindow) {
+                reported++;
+                return true;
+            }
+            suppressed++;
+            lastMessage = e.getMessage();
+            return false;
+        }
+    }
+
+    /**
+     * Identifies an error by its exception type, its top stack frames and its context. Messages are left out
+     * because they often carry varying details such as IDs.
+     */
+    private record Fingerprint(String type, String context, long frames) {
+        private static Fingerprint of(Throwable e, String context) {
+            long hash = TraceFingerprint.of(e, 1, FINGERPRINT_FRAMES);
+            return new Fingerprint(e.getClass().getName(), String.valueOf(context), hash);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A binary event journal written into memory-mapped segment files.
+ * Every event is a fixed-layout record of {@value #RECORD_BYTES} bytes holding its timestamp, type, user ID
+ * and two interned strings, so recording an event needs neither text formatting nor a system call.
+ *
+ * <p>Strings are interned into a dictionary file the first time they are seen, and records refer to them
+ * by ID. Recording an event whose strings are already known allocates nothing: producers claim a slot in
+ * the current segment with a single atomic increment and write the record into the mapping directly.
+ * Use {@link EventJournalReader} to decode a journal to text.</p>
+ *
+ * <p>Layout of a segment file {@code journal-<n>.bin}: a {@value #HEADER_BYTES}-byte header (magic, version,
+ * record size) followed by records of: timestamp in epoch milliseconds (8 bytes), user ID (8 bytes,
+ * {@link Long#MIN_VALUE} if absent), action string ID (4), details string ID (4), event type (1) and padding.
+ * A record whose timestamp is 0 was never completed. The dictionary file {@code strings.dict} holds entries
+ * of string ID (4 bytes), length (4 bytes) and UTF-8 text; string ID 0 stands for no string.</p>
+ *
+ * <p>Free-text details, such as user actions or warning messages with IDs in them, would fill the dictionary
+ * with strings seen once, so {@link #recordInline} stores them in the record instead: the details string ID is
+ * {@value #INLINE_STRING}, the last 4 bytes of the record hold the text's length, and the UTF-8 text follows in
+ * continuation slots, each holding {@value #CONTINUATION_MARKER} in place of a timestamp and
+ * {@value #CONTINUATION_TEXT_BYTES} bytes of text.</p>
+ *
+ * <p>Written records reach the disk when the operating system writes back the mapped pages, or on
+ * {@link #flush()} and {@link #close()}.</p>
+ */
+@Slf4j
+public class EventJournal implements AutoCloseable {
+    static final int MAGIC = 0x4A424A31;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 32;
+    static final long NO_USER = Long.MIN_VALUE;
+    static final int NO_STRING = 0;
+    static final int DICTIONARY_FULL = -1;
+    static final int INLINE_STRING = -2;
+    static final long CONTINUATION_MARKER = -1;
+    static final int CONTINUATION_TEXT_BYTES = RECORD_BYTES - 8;
+    static final int MAX_INLINE_BYTES = 2048;
+    static final String DICTIONARY_FILE = "strings.dict";
+    static final Pattern SEGMENT_PATTERN = Pattern.compile("journal-(\\d+)\\.bin");
+
+    /**
+     * The types of journal records.
+     */
+    public enum Type {
+        USER_ACTION, BOT_ACTION, WARNING, ERROR
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int maxStrings;
+    private final ConcurrentHashMap<String, Integer> strings = new ConcurrentHashMap<>();
+    private final Object dictionaryLock = new Object();
+    private final FileChannel dictionary;
+    private volatile Segment current;
+    private long nextSegment;
+    private boolean dictionaryFullReported;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new EventJournal with 64 MiB segments and at most one million interned strings.
+     *
+     * @param directory The directory holding the segment and dictionary files; created if missing.
+     * @throws IOException If the directory or its files cannot be opened.
+     */
+    public EventJournal(Path directory) throws IOException {
+        this(directory, 64 * 1024 * 1024, 1_000_000);
+    }
+
+    /**
+     * Constructs a new EventJournal instance. Interned strings of an existing journal in the directory are
+     * reused, and records are written into a new segment.
+     *
+     * @param directory    The directory holding the segment and dictionary files; created if missing.
+     * @param segmentBytes The size of each segment file.
+     * @param maxStrings   The maximum number of interned strings. Later new strings are recorded as unknown,
+     *                     so high-cardinality text such as raw messages should not be journaled.
+     * @throws IOException If the directory or its files cannot be opened.
+     */
+    public EventJournal(Path directory, int segmentBytes, int maxStrings) throws IOException {
+        if (segmentBytes < HEADER_BYTES + RECORD_BYTES) {
+            throw new IllegalArgumentException("Segment size must hold at least one record");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentRecords = (segmentBytes - HEADER_BYTES) / RECORD_BYTES;
+        this.maxStrings = maxStrings;
+        long dictionaryBytes = loadDictionary(strings, directory.resolve(DICTIONARY_FILE));
+        this.dictionary = FileChannel.open(directory.resolve(DICTIONARY_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Cut off an entry a crash left half-written, so new entries follow the last complete one.
+        dictionary.truncate(dictionaryBytes);
+        this.nextSegment = lastSegmentNumber(directory) + 1;
+        this.current = openSegment();
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param type    The type of the event.
+     * @param userId  The ID of the user involved, or {@code null}.
+     * @param action  The action, interned on first use; may be {@code null}.
+     * @param details The details, interned on first use; may be {@code null}.
+     */
+    public void record(Type type, Long userId, String action, String details) {
+        if (closed) {
+            return;
+        }
+        write(type, userId, intern(action), intern(details), null);
+    }
+
+    /**
+     * Records an event whose details are stored in the record itself rather than interned, for free text
+     * that is rarely repeated. Details longer than {@value #MAX_INLINE_BYTES} bytes, or than fits into a segment,
+     * are truncated.
+     *
+     * @param type    The type of the event.
+     * @param userId  The ID of the user involved, or {@code null}.
+     * @param action  The action, interned on first use; may be {@code null}.
+     * @param details The details, stored inline; may be {@code null}.
+     */
+    public void recordInline(Type type, Long userId, String action, String details) {
+        if (closed) {
+            return;
+        }
+        if (details == null) {
+            write(type, userId, intern(action), NO_STRING, null);
+            return;
+        }
+        byte[] text = details.getBytes(StandardCharsets.UTF_8);
+        // A record and its continuations must fit into a single segment.
+        int limit = (int) Math.min(MAX_INLINE_BYTES, (long) (segmentRecords - 1) * CONTINUATION_TEXT_BYTES);
+        if (text.length > limit) {
+            text = Arrays.copyOf(text, limit);
+        }
+        write(type, userId, intern(action), INLINE_STRING, text);
+    }
+
+    private void write(Type type, Long userId, int actionId, int detailsId, byte[] text) {
+        long timestamp = System.currentTimeMillis();
+        long user = userId != null ? userId : NO_USER;
+        int slots = 1 + (text == null ? 0 : (text.length + CONTINUATION_TEXT_BYTES - 1) / CONTINUATION_TEXT_BYTES);
+
+        while (true) {
+            Segment segment = current;
+            long slot = segment.cursor.getAndAdd(slots);
+            if (slot + slots <= segmentRecords) {
+                int offset = HEADER_BYTES + (int) slot * RECORD_BYTES;
+                MappedByteBuffer buffer = segment.buffer;
+                if (text != null) {
+                    writeContinuations(buffer, offset + RECORD_BYTES, text);
+                    buffer.putInt(offset + 28, text.length);
+                }
+                buffer.putLong(offset + 8, user);
+                buffer.putInt(offset + 16, actionId);
+                buffer.putInt(offset + 20, detailsId);
+                buffer.put(offset + 24, (byte) type.ordinal());
+                // The timestamp is written last and marks the record as complete.
+                buffer.putLong(offset, timestamp);
+                return;
+            }
+            if (!nextSegment(segment)) {
+                return;
+            }
+        }
+    }
+
+    private static void writeContinuations(MappedByteBuffer buffer, int offset, byte[] text) {
+        for (int start = 0; start < text.length; start += CONTINUATION_TEXT_BYTES, offset += RECORD_BYTES) {
+            buffer.put(offset + 8, text, start, Math.min(CONTINUATION_TEXT_BYTES, text.length - start));
+            buffer.putLong(offset, CONTINUATION_MARKER);
+        }
+    }
+
+    /**
+     * Forces the current segment and the dictionary to disk.
+     */
+    public void flush() {
+        try {
+            current.buffer.force();
+            dictionary.force(false);
+        } catch (IOException e) {
+            log.error("Failed to flush event journal {}: {}", directory, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flushes the journal and stops recording. Later events are ignored.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flush();
+        try {
+            dictionary.close();
+        } catch (IOException e) {
+            log.warn("Failed to close event journal dictionary: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the ID of the given string, adding it to the dictionary on first use.
+     * The string is written to the dictionary file before its ID is published, so every record
+     * referring to it can be decoded.
+     */
+    private int intern(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = strings.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (dictionaryLock) {
+            id = strings.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (strings.size() >= maxStrings) {
+                if (!dictionaryFullReported) {
+                    dictionaryFullReported = true;
+                    log.warn("Event journal dictionary is full ({} strings); new strings are recorded as unknown",
+                            maxStrings);
+                }
+                return DICTIONARY_FULL;
+            }
+            int newId = strings.size() + 1;
+            try {
+                byte[] text = value.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer entry = ByteBuffer.allocate(8 + text.length);
+                entry.putInt(newId).putInt(text.length).put(text).flip();
+                while (entry.hasRemaining()) {
+                    dictionary.write(entry);
+                }
+            } catch (IOException e) {
+                log.error("Failed to write event journal dictionary: {}", e.getMessage(), e);
+                return DICTIONARY_FULL;
+            }
+            strings.put(value, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Replaces the full segment with a new one, unless another thread already did.
+     *
+     * @return {@code false} if the journal is closed or no new segment could be opened.
+     */
+    private synchronized boolean nextSegment(Segment full) {
+        if (closed) {
+            return false;
+        }
+        if (current != full) {
+            return true;
+        }
+        try {
+            current = openSegment();
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to open event journal segment in {}: {}", directory, e.getMessage(), e);
+            closed = true;
+            return false;
+        }
+    }
+
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve("journal-" + nextSegment++ + ".bin");
+        long size = HEADER_BYTES + (long) segmentRecords * RECORD_BYTES;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_BYTES);
+            return new Segment(buffer);
+        }
+    }
+
+    static long lastSegmentNumber(Path directory) throws IOException {
+        long last = 0;
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Matcher matcher = SEGMENT_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    last = Math.max(last, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Reads the dictionary file into the given map. A truncated last entry, left by a crash, is ignored.
+     *
+     * @return The length of the complete entries in bytes.
+     */
+    static long loadDictionary(Map<String, Integer> target, Path file) throws IOException {
+        long complete = 0;
+        if (!Files.exists(file)) {
+            return complete;
+        }
+        try (InputStream in = Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            while (true) {
+                int id = data.readInt();
+                byte[] text = new byte[data.readInt()];
+                data.readFully(text);
+                target.put(new String(text, StandardCharsets.UTF_8), id);
+                complete += 8 + text.length;
+            }
+        } catch (EOFException e) {
+            return complete;
+        }
+    }
+
+    static Type type(int ordinal) {
+        return ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : null;
+    }
+
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private final AtomicLong cursor = new AtomicLong();
+
+        private Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+/**
+ * Decodes the segment files written by an {@link EventJournal}.
+ * Segments are read in the order they were written, and records that were never completed are skipped.
+ *
+ * <p>Can be run from the command line to print a journal as text:
+ * {@code java -cp jbotlib.jar service.EventJournalReader <journal directory>}.</p>
+ */
+public class EventJournalReader {
+    private final Path directory;
+    private final Map<Integer, String> strings = new HashMap<>();
+
+    /**
+     * A decoded journal record.
+     *
+     * @param timestamp The time the event was recorded.
+     * @param type      The type of the event.
+     * @param userId    The ID of the user involved, or {@code null}.
+     * @param action    The action, or {@code null}.
+     * @param details   The details, or {@code null}.
+     */
+    public record Entry(Instant timestamp, EventJournal.Type type, Long userId, String action, String details) {
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder()
+                    .append('[').append(timestamp).append("] ").append(type);
+            if (userId != null) {
+                text.append(" user=").append(userId);
+            }
+            if (action != null) {
+                text.append(" action=").append(action);
+            }
+            if (details != null) {
+                text.append(" details=").append(details);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Constructs a new EventJournalReader instance, loading the journal's string dictionary.
+     *
+     * @param directory The journal directory.
+     * @throws IOException If the dictionary cannot be read.
+     */
+    public EventJournalReader(Path directory) throws IOException {
+        this.directory = directory;
+        Map<String, Integer> ids = new HashMap<>();
+        EventJournal.loadDictionary(ids, directory.resolve(EventJournal.DICTIONARY_FILE));
+        ids.forEach((value, id) -> strings.put(id, value));
+    }
+
+    /**
+     * Passes every completed record of the journal to the given consumer, oldest segment first.
+     *
+     * @param consumer The consumer of the records.
+     * @throws IOException If a segment cannot be read or is not a journal segment.
+     */
+    public void read(Consumer<Entry> consumer) throws IOException {
+        for (Path segment : segments()) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    private void readSegment(Path segment, Consumer<Entry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < EventJournal.HEADER_BYTES || buffer.getInt(0) != EventJournal.MAGIC) {
+                throw new IOException("Not an event journal segment: " + segment);
+            }
+            int version = buffer.getInt(4);
+            if (version < 1 || version > EventJournal.VERSION) {
+                throw new IOException("Unsupported event journal version " + buffer.getInt(4) + " in " + segment);
+            }
+            int recordBytes = buffer.getInt(8);
+            for (int offset = EventJournal.HEADER_BYTES; offset + recordBytes <= buffer.limit(); offset += recordBytes) {
+                long timestamp = buffer.getLong(offset);
+                if (timestamp == 0 || timestamp == EventJournal.CONTINUATION_MARKER) {
+                    continue;
+                }
+                long userId = buffer.getLong(offset + 8);
+                int detailsId = buffer.getInt(offset + 20);
+                String details;
+                if (detailsId == EventJournal.INLINE_STRING) {
+                    int length = Math.min(buffer.getInt(offset + 28), EventJournal.MAX_INLINE_BYTES);
+                    details = inlineText(buffer, offset + recordBytes, recordBytes, length);
+                } else {
+                    details = string(detailsId);
+                }
+                consumer.accept(new Entry(
+                        Instant.ofEpochMilli(timestamp),
+                        EventJournal.type(buffer.get(offset + 24)),
+                        userId == EventJournal.NO_USER ? null : userId,
+                        string(buffer.getInt(offset + 16)),
+                        details));
+            }
+        }
+    }
+
+    /**
+     * Reads the text stored in the continuation slots following a record. The slots themselves are skipped
+     * by the main loop, since they are marked as continuations.
+     */
+    private static String inlineText(ByteBuffer buffer, int offset, int recordBytes, int length) {
+        int textBytes = recordBytes - 8;
+        byte[] text = new byte[Math.max(0, length)];
+        for (int start = 0; start < text.length; start += textBytes, offset += recordBytes) {
+            if (offset + recordBytes > buffer.limit()) {
+                return new String(text, 0, start, StandardCharsets.UTF_8);
+            }
+            buffer.get(offset + 8, text, start, Math.min(textBytes, text.length - start));
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private String string(int id) {
+        if (id == EventJournal.NO_STRING) {
+            return null;
+        }
+        return strings.getOrDefault(id, "<unknown #" + id + ">");
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> EventJournal.SEGMENT_PATTERN.matcher(path.getFileName().toString()).matches())
+                    .forEach(segments::add);
+        }
+        segments.sort(Comparator.comparingLong(EventJournalReader::segmentNumber));
+        return segments;
+    }
+
+    private static long segmentNumber(Path segment) {
+        Matcher matcher = EventJournal.SEGMENT_PATTERN.matcher(segment.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Prints the journal in the given directory as text, one record per line.
+     *
+     * @param args The journal directory.
+     * @throws IOException If the journal cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: EventJournalReader <journal directory>");
+            System.exit(2);
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            new EventJournalReader(Path.of(args[0])).read(entry -> {
+                try {
+                    out.write(entry.toString());
+                    out.write(System.lineSeparator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            out.flush();
+        }
+    }
+}
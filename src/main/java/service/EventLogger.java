@@ -3,13 +3,16 @@ package service;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.MessageFormatter;
 
-import java.io.FileWriter;
-import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * A utility class for logging events, errors, and warnings in a Telegram bot.
@@ -19,16 +22,34 @@ import java.util.Map;
  *
  * <p>This class is designed to provide a centralized logging mechanism for a Telegram bot,
  * allowing developers to track events, debug issues, and monitor bot activity. It supports
- * both in-memory context data and persistent file logging.</p>
+ * both contextual data and persistent file logging. Context data is kept per thread in a {@link LogContext},
+ * so handlers processing different updates in parallel never mix up their context.</p>
+ *
+ * <p>File logging goes through an {@link AsyncFileAppender}, so callers never wait for disk I/O.
+ * The appender rolls the file by size and by day and compresses rolled files in the background.</p>
+ *
+ * <p>With an {@link EventJournal}, user and bot actions are recorded as binary journal records instead of
+ * formatted text lines, which keeps high-volume audit logging cheap. Warnings and errors are journaled too,
+ * and still written to the file log.</p>
+ *
+ * <p>Errors are rate-limited by an {@link ErrorRateLimiter}: the first occurrences of the same error are logged
+ * in full, later ones within the window are only counted and logged as a periodic summary such as
+ * {@code x1234 in last 60s}.</p>
  *
  * @author [Your Name]
  * @version 1.0
  */
 public class EventLogger {
     private static final Logger logger = LoggerFactory.getLogger(EventLogger.class);
-    private final boolean enableFileLogging;
-    private final String logFilePath;
-    private final Map<String, String> contextData;
+    private static final int MAX_RETAINED_LINE = 16 * 1024;
+    private static final int MAX_STACK_FRAMES = 30;
+    private final AsyncFileAppender appender;
+    private final EventJournal journal;
+    private final ThreadLocal<StringBuilder> lineBuilder = ThreadLocal.withInitial(StringBuilder::new);
+    private final StackTraceRenderer stackTraces = new StackTraceRenderer(MAX_STACK_FRAMES, 1_024,
+            Duration.ofHours(1));
+    private final ErrorRateLimiter errorLimiter;
+    private ScheduledExecutorService summaryScheduler;
 
     /**
      * Constructs a new EventLogger instance with file logging disabled.
@@ -44,9 +65,41 @@ public class EventLogger {
      * @param logFilePath       The path to the log file (required if file logging is enabled).
      */
     public EventLogger(boolean enableFileLogging, String logFilePath) {
-        this.enableFileLogging = enableFileLogging;
-        this.logFilePath = logFilePath;
-        this.contextData = new HashMap<>();
+        this(enableFileLogging && logFilePath != null ? new AsyncFileAppender(Path.of(logFilePath)) : null);
+    }
+
+    /**
+     * Constructs a new EventLogger instance writing its file log through the given appender.
+     *
+     * @param appender The appender writing the log file, or {@code null} to disable file logging.
+     */
+    public EventLogger(AsyncFileAppender appender) {
+        this(appender, null);
+    }
+
+    /**
+     * Constructs a new EventLogger instance writing its file log through the given appender and
+     * recording events in the given journal.
+     *
+     * @param appender The appender writing the log file, or {@code null} to disable file logging.
+     * @param journal  The journal recording events, or {@code null} to disable the journal.
+     */
+    public EventLogger(AsyncFileAppender appender, EventJournal journal) {
+        this(appender, journal, new ErrorRateLimiter(5, Duration.ofSeconds(60)));
+    }
+
+    /**
+     * Constructs a new EventLogger instance writing its file log through the given appender, recording events
+     * in the given journal and rate-limiting errors with the given limiter.
+     *
+     * @param appender     The appender writing the log file, or {@code null} to disable file logging.
+     * @param journal      The journal recording events, or {@code null} to disable the journal.
+     * @param errorLimiter Decides which errors are logged in full and which are summarized.
+     */
+    public EventLogger(AsyncFileAppender appender, EventJournal journal, ErrorRateLimiter errorLimiter) {
+        this.appender = appender;
+        this.journal = journal;
+        this.errorLimiter = errorLimiter;
     }
 
     /**
@@ -57,100 +110,268 @@ public class EventLogger {
      */
     @SneakyThrows
     public void logUserAction(Long userId, String action) {
-        String message = String.format("User %d performed action: %s", userId, action);
-        logger.info(message);
-        writeToFileIfEnabled("INFO", message);
+        logger.info("User {} performed action: {}", userId, action);
+        if (journal != null) {
+            journal.recordInline(EventJournal.Type.USER_ACTION, userId, null, action);
+            return;
+        }
+        StringBuilder line = beginFileLine("INFO");
+        if (line != null) {
+            endFileLine(line.append("User ").append(userId).append(" performed action: ").append(action));
+        }
     }
 
     /**
      * Logs a bot action with the specified action and details.
      *
      * @param action  The description of the bot action.
-     * @param details Additional details about the action.
+     * @param details Additional details about the action. Journaled inline, so they may be free text.
      */
     @SneakyThrows
     public void logBotAction(String action, String details) {
-        String message = String.format("Bot action: %s | Details: %s", action, details);
-        logger.info(message);
-        writeToFileIfEnabled("INFO", message);
+        logger.info("Bot action: {} | Details: {}", action, details);
+        if (journal != null) {
+            journal.recordInline(EventJournal.Type.BOT_ACTION, null, action, details);
+            return;
+        }
+        StringBuilder line = beginFileLine("INFO");
+        if (line != null) {
+            endFileLine(line.append("Bot action: ").append(action).append(" | Details: ").append(details));
+        }
     }
 
     /**
      * Logs an error with the specified exception and context.
+     * Repeated occurrences of the same error are rate-limited, see {@link ErrorRateLimiter}.
+     * The stack trace is only rendered if file logging is enabled, truncated to {@value #MAX_STACK_FRAMES}
+     * frames per cause, and replaced by a reference when the same trace was written recently.
      *
      * @param e       The exception to log.
      * @param context The context in which the error occurred.
      */
     @SneakyThrows
     public void logError(Exception e, String context) {
-        String message = String.format("Error in context '%s': %s", context, e.getMessage());
-        logger.error(message, e);
-        writeToFileIfEnabled("ERROR", message + " | Stacktrace: " + getStackTrace(e));
+        if (journal != null) {
+            journal.record(EventJournal.Type.ERROR, null, context, e.getClass().getName());
+        }
+        if (!acquireFullReport(e, context)) {
+            return;
+        }
+        logger.error("Error in context '{}': {}", context, e.getMessage(), e);
+        StringBuilder line = beginFileLine("ERROR");
+        if (line != null) {
+            line.append("Error in context '").append(context).append("': ").append(e.getMessage())
+                    .append(" | ");
+            stackTraces.render(e, line);
+            endFileLine(line);
+        }
     }
 
     /**
      * Logs a warning with the specified message and context.
      *
-     * @param message The warning message.
+     * @param message The warning message. Journaled inline, so it may be free text.
      * @param context The context in which the warning occurred.
      */
     @SneakyThrows
     public void logWarning(String message, String context) {
-        String fullMessage = String.format("Warning in context '%s': %s", context, message);
-        logger.warn(fullMessage);
-        writeToFileIfEnabled("WARN", fullMessage);
+        logger.warn("Warning in context '{}': {}", context, message);
+        if (journal != null) {
+            journal.recordInline(EventJournal.Type.WARNING, null, context, message);
+        }
+        StringBuilder line = beginFileLine("WARN");
+        if (line != null) {
+            endFileLine(line.append("Warning in context '").append(context).append("': ").append(message));
+        }
+    }
+
+    /**
+     * Logs an informational message given as an SLF4J-style pattern with {@code {}} placeholders.
+     * The message is only formatted if INFO is enabled or file logging is on.
+     * <p>
+     * Example:
+     * <pre>
+     * eventLogger.logInfo("Sent {} messages to chat {}", count, chatId);
+     * </pre>
+     *
+     * @param pattern   The message pattern.
+     * @param arguments The values of the placeholders.
+     */
+    public void logInfo(String pattern, Object... arguments) {
+        logger.info(pattern, arguments);
+        writePatternIfEnabled("INFO", null, pattern, arguments);
+    }
+
+    /**
+     * Logs an informational message produced by the given supplier, which is only called if INFO is
+     * enabled or file logging is on.
+     *
+     * @param message Supplies the message.
+     */
+    public void logInfo(Supplier<String> message) {
+        if (!logger.isInfoEnabled() && appender == null) {
+            return;
+        }
+        String text = message.get();
+        logger.info(text);
+        StringBuilder line = beginFileLine("INFO");
+        if (line != null) {
+            endFileLine(line.append(text));
+        }
     }
 
     /**
-     * Adds contextual data to the logger, which will be included in subsequent log messages.
+     * Logs a warning given as an SLF4J-style pattern with {@code {}} placeholders.
+     * The message is only formatted if WARN is enabled or file logging is on.
+     *
+     * @param pattern   The message pattern.
+     * @param arguments The values of the placeholders.
+     */
+    public void logWarn(String pattern, Object... arguments) {
+        logger.warn(pattern, arguments);
+        writePatternIfEnabled("WARN", null, pattern, arguments);
+    }
+
+    /**
+     * Logs an error given as an SLF4J-style pattern with {@code {}} placeholders, along with its exception.
+     * The message is only formatted, and the stack trace only rendered, if a sink consumes them.
+     * Errors are grouped for rate limiting by their pattern, which serves as their context.
+     *
+     * @param e         The exception to log.
+     * @param pattern   The message pattern.
+     * @param arguments The values of the placeholders.
+     */
+    public void logError(Throwable e, String pattern, Object... arguments) {
+        if (journal != null) {
+            journal.record(EventJournal.Type.ERROR, null, pattern, e.getClass().getName());
+        }
+        if (!acquireFullReport(e, pattern)) {
+            return;
+        }
+        if (logger.isErrorEnabled()) {
+            logger.error(MessageFormatter.arrayFormat(pattern, arguments).getMessage(), e);
+        }
+        writePatternIfEnabled("ERROR", e, pattern, arguments);
+    }
+
+    /**
+     * Adds contextual data to the current thread's {@link LogContext}, which will be included in subsequent
+     * log messages of this thread.
      *
      * @param key   The key for the context data.
      * @param value The value for the context data.
      */
     @SneakyThrows
     public void addContext(String key, String value) {
-        contextData.put(key, value);
+        LogContext.current().put(key, value);
     }
 
     /**
-     * Clears all contextual data from the logger.
+     * Clears all contextual data of the current thread.
      */
     @SneakyThrows
     public void clearContext() {
-        contextData.clear();
+        LogContext.current().clear();
     }
 
     /**
-     * Writes a log message to the file if file logging is enabled.
-     *
-     * @param level   The log level (e.g., INFO, ERROR, WARN).
-     * @param message The message to log.
+     * Flushes the lines still queued for the log file and closes it, along with the journal.
+     * Later file log lines and journal records are ignored.
      */
-    @SneakyThrows
-    private void writeToFileIfEnabled(String level, String message) {
-        if (enableFileLogging && logFilePath != null) {
-            try (FileWriter writer = new FileWriter(logFilePath, true)) {
-                String timestamp = DateTimeFormatter.ISO_INSTANT.format(Instant.now());
-                String contextString = contextData.isEmpty() ? "" : " | Context: " + contextData;
-                writer.write(String.format("[%s] %s: %s%s%n", timestamp, level, message, contextString));
-            } catch (IOException e) {
-                logger.error("Failed to write to log file: {}", e.getMessage(), e);
+    public void close() {
+        synchronized (errorLimiter) {
+            if (summaryScheduler != null) {
+                summaryScheduler.shutdownNow();
             }
         }
+        errorLimiter.drain(this::logSummary);
+        if (appender != null) {
+            appender.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
     }
 
     /**
-     * Converts an exception's stack trace to a string.
+     * Asks the limiter whether the error is reported in full, starting the summary thread on the
+     * first suppressed error.
+     */
+    private boolean acquireFullReport(Throwable e, String context) {
+        if (errorLimiter.tryAcquire(e, context)) {
+            return true;
+        }
+        synchronized (errorLimiter) {
+            if (summaryScheduler == null) {
+                summaryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "jbotlib-error-summary");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                long period = errorLimiter.getWindow().toMillis();
+                summaryScheduler.scheduleAtFixedRate(() -> errorLimiter.drain(this::logSummary),
+                        period, period, TimeUnit.MILLISECONDS);
+            }
+        }
+        return false;
+    }
+
+    private void logSummary(ErrorRateLimiter.Summary summary) {
+        long seconds = Math.max(1, summary.period().toSeconds());
+        logger.error("Error in context '{}': {}: {} x{} in last {}s", summary.context(), summary.exceptionType(),
+                summary.message(), summary.suppressed(), seconds);
+        StringBuilder line = beginFileLine("ERROR");
+        if (line != null) {
+            endFileLine(line.append("Error in context '").append(summary.context()).append("': ")
+                    .append(summary.exceptionType()).append(": ").append(summary.message())
+                    .append(" x").append(summary.suppressed()).append(" in last ").append(seconds).append('s'));
+        }
+    }
+
+    private void writePatternIfEnabled(String level, Throwable e, String pattern, Object[] arguments) {
+        StringBuilder line = beginFileLine(level);
+        if (line == null) {
+            return;
+        }
+        line.append(MessageFormatter.arrayFormat(pattern, arguments).getMessage());
+        if (e != null) {
+            stackTraces.render(e, line.append(" | "));
+        }
+        endFileLine(line);
+    }
+
+    /**
+     * Starts a file log line with its timestamp and level, if file logging is enabled.
+     * The caller appends the message and passes the builder to {@link #endFileLine(StringBuilder)}.
      *
-     * @param e The exception whose stack trace to convert.
-     * @return A string representation of the stack trace.
+     * @param level The log level (e.g., INFO, ERROR, WARN).
+     * @return This thread's line builder, or {@code null} if file logging is disabled.
      */
-    @SneakyThrows
-    private String getStackTrace(Exception e) {
-        StringBuilder sb = new StringBuilder();
-        for (StackTraceElement element : e.getStackTrace()) {
-            sb.append(element.toString()).append("\n");
+    private StringBuilder beginFileLine(String level) {
+        if (appender == null) {
+            return null;
+        }
+        StringBuilder line = lineBuilder.get();
+        line.setLength(0);
+        line.append('[');
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.now(), line);
+        return line.append("] ").append(level).append(": ");
+    }
+
+    /**
+     * Appends the current {@link LogContext} and queues the line for the file.
+     * The line is written by the appender's background thread, not by the caller.
+     *
+     * @param line The line started by {@link #beginFileLine(String)}.
+     */
+    private void endFileLine(StringBuilder line) {
+        LogContext context = LogContext.current();
+        if (!context.isEmpty()) {
+            context.appendTo(line.append(" | Context: "));
+        }
+        appender.append(line.append(System.lineSeparator()).toString());
+        if (line.capacity() > MAX_RETAINED_LINE) {
+            lineBuilder.remove();
         }
-        return sb.toString();
     }
 }
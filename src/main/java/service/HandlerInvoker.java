@@ -0,0 +1,186 @@
+package service;
+
+import annotations.AdminOnly;
+import annotations.CallbackHandler;
+import lombok.SneakyThrows;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * A precompiled invoker for an annotated handler method.
+ * The handler's parameter list is resolved once, at registration time, into a {@link MethodHandle}
+ * with the uniform shape {@code (Long chatId, Long userId, CallbackParameters parameters)void}: service
+ * parameters are bound as constants and the chat and user IDs and callback parameters are routed to their
+ * slots, so dispatching a handler performs no reflection, no metadata lookups and no argument array allocation.
+ *
+ * <p>Parameter binding follows the same rules {@link AnnotationService} has always applied:
+ * a {@link Long} in position 0 receives the chat ID, a {@link Long} in position 1 receives the user ID,
+ * the bot's services, including the {@link TimerService} of the message service, are injected by type,
+ * and any other parameter receives its default value. In a {@link CallbackHandler}, the {@link String},
+ * {@link Integer} and {@link Long} parameters after the IDs instead receive the parsed callback parameters
+ * in order, and a {@link CallbackQuery} parameter receives the query.</p>
+ */
+final class HandlerInvoker {
+    private static final MethodType INVOKER_TYPE =
+            MethodType.methodType(void.class, Long.class, Long.class, CallbackParameters.class);
+    private static final int CHAT_ID = 0;
+    private static final int USER_ID = 1;
+    private static final int PARAMETERS = 2;
+
+    private final Method method;
+    private final boolean adminOnly;
+    private final boolean takesCallbackQuery;
+    private final MethodHandle handle;
+
+    private HandlerInvoker(Method method, boolean adminOnly, boolean takesCallbackQuery, MethodHandle handle) {
+        this.method = method;
+        this.adminOnly = adminOnly;
+        this.takesCallbackQuery = takesCallbackQuery;
+        this.handle = handle;
+    }
+
+    /**
+     * Compiles the given handler method into an invoker bound to the given target instance.
+     *
+     * @param target          The object declaring the handler method.
+     * @param method          The handler method.
+     * @param messageService  The MessageService injected into {@link MessageService} parameters.
+     * @param keyboardBuilder The KeyboardBuilder injected into {@link KeyboardBuilder} parameters.
+     * @param chatService     The ChatService injected into {@link ChatService} parameters.
+     * @param eventLogger     The EventLogger injected into {@link EventLogger} parameters.
+     * @return The compiled invoker.
+     */
+    @SneakyThrows
+    static HandlerInvoker compile(Object target, Method method, MessageService messageService,
+                                  KeyboardBuilder keyboardBuilder, ChatService chatService, EventLogger eventLogger) {
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(target);
+        handle = handle.asType(handle.type().changeReturnType(void.class));
+
+        Class<?>[] paramTypes = method.getParameterTypes();
+        int[] routes = new int[paramTypes.length];
+        int routed = 0;
+        boolean callback = method.isAnnotationPresent(CallbackHandler.class);
+        boolean takesCallbackQuery = false;
+
+        // Callback parameters are numbered in declaration order before the parameters are folded in.
+        int[] callbackIndex = new int[paramTypes.length];
+        int callbackParameters = 0;
+        for (int i = 2; i < paramTypes.length && callback; i++) {
+            if (isCallbackParameter(paramTypes[i])) {
+                callbackIndex[i] = callbackParameters++;
+            }
+        }
+
+        // Constants are folded in from the last parameter backwards so earlier positions stay valid.
+        for (int i = paramTypes.length - 1; i >= 0; i--) {
+            Class<?> type = paramTypes[i];
+            if (type.equals(Long.class) && i == 0) {
+                routes[routed++] = CHAT_ID;
+            } else if (type.equals(Long.class) && i == 1) {
+                routes[routed++] = USER_ID;
+            } else if (callback && (type.equals(CallbackQuery.class) || i >= 2 && isCallbackParameter(type))) {
+                MethodHandle accessor = type.equals(CallbackQuery.class)
+                        ? MethodHandles.lookup().findStatic(CallbackParameters.class, "query",
+                        MethodType.methodType(CallbackQuery.class, CallbackParameters.class))
+                        : MethodHandles.insertArguments(MethodHandles.lookup().findStatic(CallbackParameters.class,
+                        accessorName(type), MethodType.methodType(type, CallbackParameters.class, int.class)),
+                        1, callbackIndex[i]);
+                takesCallbackQuery |= type.equals(CallbackQuery.class);
+                handle = MethodHandles.collectArguments(handle, i, accessor);
+                routes[routed++] = PARAMETERS;
+            } else {
+                Object value = null;
+                if (type.equals(MessageService.class)) {
+                    value = messageService;
+                } else if (type.equals(KeyboardBuilder.class)) {
+                    value = keyboardBuilder;
+                } else if (type.equals(ChatService.class)) {
+                    value = chatService;
+                } else if (type.equals(EventLogger.class)) {
+                    value = eventLogger;
+                } else if (type.equals(TimerService.class)) {
+                    value = messageService.getTimerService();
+                }
+                MethodHandle constant = value == null
+                        ? MethodHandles.zero(type)
+                        : MethodHandles.constant(type, value);
+                handle = MethodHandles.collectArguments(handle, i, constant);
+            }
+        }
+
+        // Routes were collected right to left; the remaining parameters are in declaration order.
+        int[] reorder = Arrays.copyOf(routes, routed);
+        for (int i = 0; i < routed / 2; i++) {
+            int tmp = reorder[i];
+            reorder[i] = reorder[routed - 1 - i];
+            reorder[routed - 1 - i] = tmp;
+        }
+        handle = MethodHandles.permuteArguments(handle, INVOKER_TYPE, reorder);
+
+        return new HandlerInvoker(method, method.isAnnotationPresent(AdminOnly.class), takesCallbackQuery, handle);
+    }
+
+    /**
+     * Invokes the handler with the given chat and user IDs.
+     *
+     * @param chatId The ID of the chat where the handler is invoked.
+     * @param userId The ID of the user who triggered the handler (can be null for scheduled tasks).
+     */
+    void invoke(Long chatId, Long userId) {
+        invoke(chatId, userId, null);
+    }
+
+    /**
+     * Invokes the handler with the given chat and user IDs and callback parameters.
+     *
+     * @param chatId     The ID of the chat where the handler is invoked (can be null for inline messages).
+     * @param userId     The ID of the user who triggered the handler.
+     * @param parameters The parameters of the callback query, or {@code null} if the handler was not
+     *                   triggered by one.
+     */
+    @SneakyThrows
+    void invoke(Long chatId, Long userId, CallbackParameters parameters) {
+        handle.invokeExact(chatId, userId, parameters);
+    }
+
+    /**
+     * Returns whether the handler receives the {@link CallbackQuery} and is therefore responsible for answering it.
+     *
+     * @return {@code true} if the handler has a CallbackQuery parameter.
+     */
+    boolean takesCallbackQuery() {
+        return takesCallbackQuery;
+    }
+
+    /**
+     * Returns whether the handler is marked with {@link AdminOnly}.
+     *
+     * @return {@code true} if only chat admins may trigger the handler.
+     */
+    boolean isAdminOnly() {
+        return adminOnly;
+    }
+
+    /**
+     * Returns the underlying handler method.
+     *
+     * @return The handler method.
+     */
+    Method getMethod() {
+        return method;
+    }
+
+    private static boolean isCallbackParameter(Class<?> type) {
+        return type.equals(String.class) || type.equals(Integer.class) || type.equals(Long.class);
+    }
+
+    private static String accessorName(Class<?> type) {
+        return type.equals(String.class) ? "string" : type.equals(Integer.class) ? "integer" : "longValue";
+    }
+}
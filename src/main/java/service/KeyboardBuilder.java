@@ -1,7 +1,7 @@
 package service;
 
 import lombok.SneakyThrows;
-import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -14,6 +14,8 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.Keyboard
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -31,16 +33,27 @@ import java.util.stream.IntStream;
  * @version 1.0
  */
 public class KeyboardBuilder {
-    private final TelegramLongPollingBot bot;
+    private final DefaultAbsSender bot;
+    private final OutboundScheduler outboundScheduler;
+
+    /**
+     * Constructs a new KeyboardBuilder instance that sends its requests directly.
+     *
+     * @param bot The bot instance used to execute API requests.
+     */
+    public KeyboardBuilder(DefaultAbsSender bot) {
+        this(bot, null);
+    }
 
     /**
      * Constructs a new KeyboardBuilder instance.
      *
-     * @param bot The TelegramLongPollingBot instance used to execute API requests.
+     * @param bot               The bot instance used to execute API requests.
+     * @param outboundScheduler The scheduler pacing sent messages and edits, or null to send them directly.
      */
-    @SneakyThrows
-    public KeyboardBuilder(TelegramLongPollingBot bot) {
+    public KeyboardBuilder(DefaultAbsSender bot, OutboundScheduler outboundScheduler) {
         this.bot = bot;
+        this.outboundScheduler = outboundScheduler;
     }
 
     /**
@@ -174,14 +187,36 @@ public class KeyboardBuilder {
             sendMessage.setChatId(chatId);
             sendMessage.setText(messageText);
             sendMessage.setReplyMarkup(markup);
-            bot.execute(sendMessage);
+            execute(chatId, () -> bot.execute(sendMessage), true);
         } else {
             EditMessageText editMessage = new EditMessageText();
             editMessage.setChatId(chatId);
             editMessage.setMessageId(messageId);
             editMessage.setText(messageText);
             editMessage.setReplyMarkup(markup);
-            bot.execute(editMessage);
+            execute(chatId, () -> bot.execute(editMessage), false);
+        }
+    }
+
+    /**
+     * Runs a blocking request through the outbound scheduler if there is one, otherwise directly,
+     * and waits for its result.
+     *
+     * @param chatId  The ID of the chat the request is addressed to.
+     * @param request The blocking request.
+     * @param paced   Whether the request posts a message and is limited per chat, or only passes the global limit.
+     * @param <T>     The result type of the request.
+     * @return The result of the request.
+     */
+    @SneakyThrows
+    private <T> T execute(Long chatId, Callable<T> request, boolean paced) {
+        if (outboundScheduler == null) {
+            return request.call();
+        }
+        try {
+            return outboundScheduler.submit(chatId, OutboundScheduler.Priority.INTERACTIVE, request, paced).join();
+        } catch (CompletionException e) {
+            throw e.getCause();
         }
     }
 
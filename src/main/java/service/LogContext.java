@@ -0,0 +1,262 @@
+package service;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * Key-value context attached to the log lines of the current thread, such as the update being processed.
+ * Each thread has its own context, so handlers processing updates in parallel never see each other's values.
+ * The {@link UpdateDispatcher} fills in {@code updateId} and, for updates that belong to a chat, {@code chatId}
+ * before an update is handled and clears the context afterwards.
+ *
+ * <p>Slots are reused across updates and numbers are stored unboxed, so setting and rendering the context
+ * does not allocate once the slot arrays have grown to the number of keys in use.</p>
+ *
+ * <p>Work handed to another thread does not inherit the context; wrap it with {@link #wrap(Runnable)},
+ * {@link #wrap(Callable)} or {@link #wrap(BiConsumer)} to carry the submitting thread's context along.</p>
+ */
+public final class LogContext {
+    private static final int INITIAL_SLOTS = 8;
+    private static final ThreadLocal<LogContext> CURRENT = ThreadLocal.withInitial(LogContext::new);
+
+    private String[] keys = new String[INITIAL_SLOTS];
+    private String[] texts = new String[INITIAL_SLOTS];
+    private long[] numbers = new long[INITIAL_SLOTS];
+    private int size;
+
+    private LogContext() {
+    }
+
+    /**
+     * Returns the context of the current thread.
+     *
+     * @return The current thread's context.
+     */
+    public static LogContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Sets a text value, replacing any value of the same key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return This context.
+     */
+    public LogContext put(String key, String value) {
+        int slot = slot(key);
+        texts[slot] = String.valueOf(value);
+        return this;
+    }
+
+    /**
+     * Sets a numeric value, replacing any value of the same key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return This context.
+     */
+    public LogContext put(String key, long value) {
+        int slot = slot(key);
+        texts[slot] = null;
+        numbers[slot] = value;
+        return this;
+    }
+
+    /**
+     * Removes the value of the given key, if present.
+     *
+     * @param key The key.
+     */
+    public void remove(String key) {
+        int slot = indexOf(key);
+        if (slot < 0) {
+            return;
+        }
+        size--;
+        keys[slot] = keys[size];
+        texts[slot] = texts[size];
+        numbers[slot] = numbers[size];
+        keys[size] = null;
+        texts[size] = null;
+    }
+
+    /**
+     * Removes all values. The slots are kept for reuse.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns whether the context holds no values.
+     *
+     * @return {@code true} if the context is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends the context to the given builder, formatted as {@code {key=value, key=value}}.
+     *
+     * @param builder The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        builder.append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(keys[i]).append('=');
+            if (texts[i] != null) {
+                builder.append(texts[i]);
+            } else {
+                builder.append(numbers[i]);
+            }
+        }
+        return builder.append('}');
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Returns a runnable that runs the given one with the current thread's context, restoring the running
+     * thread's own context afterwards.
+     *
+     * @param task The task to wrap.
+     * @return The wrapped task, or the task itself if the current context is empty.
+     */
+    public static Runnable wrap(Runnable task) {
+        LogContext captured = current().copy();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            LogContext context = current();
+            LogContext previous = context.copy();
+            context.restore(captured);
+            try {
+                task.run();
+            } finally {
+                context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Returns a callable that calls the given one with the current thread's context, restoring the running
+     * thread's own context afterwards.
+     *
+     * @param task The task to wrap.
+     * @param <T>  The result type of the task.
+     * @return The wrapped task, or the task itself if the current context is empty.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        LogContext captured = current().copy();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            LogContext context = current();
+            LogContext previous = context.copy();
+            context.restore(captured);
+            try {
+                return task.call();
+            } finally {
+                context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Returns a consumer that runs the given one with the current thread's context, restoring the running
+     * thread's own context afterwards. Useful for {@code CompletableFuture#whenComplete} callbacks.
+     *
+     * @param action The action to wrap.
+     * @param <T>    The type of the first argument.
+     * @param <U>    The type of the second argument.
+     * @return The wrapped action, or the action itself if the current context is empty.
+     */
+    public static <T, U> BiConsumer<T, U> wrap(BiConsumer<T, U> action) {
+        LogContext captured = current().copy();
+        if (captured == null) {
+            return action;
+        }
+        return (first, second) -> {
+            LogContext context = current();
+            LogContext previous = context.copy();
+            context.restore(captured);
+            try {
+                action.accept(first, second);
+            } finally {
+                context.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Returns a detached copy of this context, or {@code null} if it is empty.
+     */
+    private LogContext copy() {
+        if (size == 0) {
+            return null;
+        }
+        LogContext copy = new LogContext();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.texts = Arrays.copyOf(texts, size);
+        copy.numbers = Arrays.copyOf(numbers, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Replaces this context's values with those of the given copy, or clears it if the copy is {@code null}.
+     */
+    private void restore(LogContext source) {
+        clear();
+        if (source == null) {
+            return;
+        }
+        for (int i = 0; i < source.size; i++) {
+            if (source.texts[i] != null) {
+                put(source.keys[i], source.texts[i]);
+            } else {
+                put(source.keys[i], source.numbers[i]);
+            }
+        }
+    }
+
+    private int slot(String key) {
+        Objects.requireNonNull(key, "key");
+        int slot = indexOf(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        keys[size] = key;
+        return size++;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
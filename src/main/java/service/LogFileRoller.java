@@ -0,0 +1,192 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rolls a log file into dated segments and maintains them in the background.
+ * Rolled segments are named {@code <file>.<yyyy-MM-dd>.<n>}, gzip-compressed to {@code <file>.<yyyy-MM-dd>.<n>.gz}
+ * when compression is enabled, and deleted oldest first once more segments or bytes are kept than allowed.
+ *
+ * <p>{@link #roll(LocalDate)} only renames the file; compression and retention run on a single
+ * background thread, so the caller never pays for them.</p>
+ */
+@Slf4j
+class LogFileRoller {
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final Path file;
+    private final boolean compress;
+    private final int maxHistory;
+    private final long maxTotalBytes;
+    private final Pattern segmentPattern;
+    private final ExecutorService worker;
+
+    /**
+     * Constructs a new LogFileRoller instance.
+     *
+     * @param file          The active log file.
+     * @param compress      Whether rolled segments are gzip-compressed.
+     * @param maxHistory    The maximum number of rolled segments kept, or {@code 0} for no limit.
+     * @param maxTotalBytes The maximum total size of the rolled segments, or {@code 0} for no limit.
+     */
+    LogFileRoller(Path file, boolean compress, int maxHistory, long maxTotalBytes) {
+        this.file = file.toAbsolutePath();
+        this.compress = compress;
+        this.maxHistory = maxHistory;
+        this.maxTotalBytes = maxTotalBytes;
+        this.segmentPattern = Pattern.compile(Pattern.quote(this.file.getFileName().toString())
+                + "\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)(" + Pattern.quote(GZIP_SUFFIX) + ")?");
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jbotlib-log-roller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Finish the work a previous process left behind, such as a segment rolled but never compressed.
+        worker.execute(this::maintain);
+    }
+
+    /**
+     * Renames the active log file to the next segment of the given day and schedules its compression
+     * and the retention clean-up. The caller must have closed the file.
+     *
+     * @param day The day the file's lines were written on.
+     * @throws IOException If the file cannot be renamed.
+     */
+    void roll(LocalDate day) throws IOException {
+        int index = nextIndex(day);
+        Path segment = file.resolveSibling(file.getFileName() + "." + day + "." + index);
+        try {
+            Files.move(file, segment, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        worker.execute(this::maintain);
+    }
+
+    /**
+     * Waits for pending compression and clean-up to finish and stops the background thread.
+     */
+    void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int nextIndex(LocalDate day) throws IOException {
+        int next = 1;
+        for (Segment segment : segments()) {
+            if (segment.day.equals(day.toString())) {
+                next = Math.max(next, segment.index + 1);
+            }
+        }
+        return next;
+    }
+
+    private void maintain() {
+        try {
+            if (compress) {
+                for (Segment segment : segments()) {
+                    if (!segment.compressed) {
+                        compress(segment.path);
+                    }
+                }
+            }
+            applyRetention();
+        } catch (IOException e) {
+            log.error("Failed to maintain rolled log files of {}: {}", file, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compresses a segment next to it, then replaces the segment with the compressed file.
+     * A half-written archive never carries the {@code .gz} name, so a crash cannot lose the segment.
+     */
+    private void compress(Path segment) throws IOException {
+        Path archive = segment.resolveSibling(segment.getFileName() + GZIP_SUFFIX);
+        Path temporary = segment.resolveSibling(segment.getFileName() + GZIP_SUFFIX + ".tmp");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+            in.transferTo(out);
+        }
+        Files.setLastModifiedTime(temporary, Files.getLastModifiedTime(segment));
+        Files.move(temporary, archive, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(segment);
+    }
+
+    private void applyRetention() throws IOException {
+        if (maxHistory <= 0 && maxTotalBytes <= 0) {
+            return;
+        }
+        List<Segment> segments = segments();
+        segments.sort(Comparator.comparing((Segment segment) -> segment.day)
+                .thenComparingInt(segment -> segment.index)
+                .reversed());
+
+        long totalBytes = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            totalBytes += Files.size(segment.path);
+            boolean tooMany = maxHistory > 0 && i >= maxHistory;
+            boolean tooLarge = maxTotalBytes > 0 && totalBytes > maxTotalBytes && i > 0;
+            if (tooMany || tooLarge) {
+                Files.deleteIfExists(segment.path);
+            }
+        }
+    }
+
+    private List<Segment> segments() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(file.getParent())) {
+            paths.forEach(path -> {
+                Matcher matcher = segmentPattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(new Segment(path, matcher.group(1), Integer.parseInt(matcher.group(2)),
+                            matcher.group(3) != null));
+                }
+            });
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the day the given file was last written to, used to roll a file left by an earlier day.
+     *
+     * @param path The log file.
+     * @return The day of its last modification, or {@code null} if it does not exist.
+     */
+    static LocalDate lastModifiedDay(Path path) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            return LocalDate.ofInstant(modified.toInstant(), ZoneId.systemDefault());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private record Segment(Path path, String day, int index, boolean compressed) {
+    }
+}
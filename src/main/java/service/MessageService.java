@@ -2,7 +2,8 @@ package service;
 
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.polls.SendPoll;
 import org.telegram.telegrambots.meta.api.methods.send.*;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
@@ -10,21 +11,36 @@ import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageCa
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageMedia;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.media.InputMedia;
 import org.telegram.telegrambots.meta.api.objects.media.InputMediaDocument;
 import org.telegram.telegrambots.meta.api.objects.media.InputMediaPhoto;
 import org.telegram.telegrambots.meta.api.objects.media.InputMediaVideo;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
 
+import java.io.Serializable;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * A service class for handling message-related operations in a Telegram bot.
  * Provides methods to send various types of messages (text, photos, videos, documents, polls, media groups),
  * edit existing messages, and delete messages in a Telegram chat.
  * All messages are sent with MarkdownV2 parsing enabled by default for rich text formatting.
+ * Every send, edit and delete method has an {@code Async} counterpart returning a {@link CompletableFuture},
+ * so several requests can be in flight at once without blocking the calling thread. Asynchronous requests
+ * run on the bot's request pool, whose size is set with {@code DefaultBotOptions#setMaxThreads}.
+ *
+ * <p>When constructed with an {@link OutboundScheduler}, every message is paced by it so the bot stays
+ * within Telegram's rate limits and runs on the scheduler's sender; blocking methods then wait until
+ * their request has been sent. Edits and deletions are not limited per chat: they only pass the scheduler's
+ * global limit and its handling of {@code retry_after}, so a handler editing a message never waits for a
+ * group's per-minute budget.</p>
  *
  * <p>This class is designed to simplify interaction with the Telegram Bot API by encapsulating
  * common message-sending and editing operations, making it easier for developers to build
@@ -35,15 +51,90 @@ import java.util.List;
  */
 @Slf4j
 public class MessageService {
-    private final TelegramLongPollingBot bot;
+    private final DefaultAbsSender bot;
+    private final OutboundScheduler outboundScheduler;
+    private final OutboundScheduler.Priority priority;
+    private final TimerService timerService;
+    private final DelayedActionStore delayedActions;
+
+    /**
+     * Constructs a new MessageService instance that sends requests directly, without rate limiting.
+     *
+     * @param bot The bot instance used to execute API requests.
+     */
+    public MessageService(DefaultAbsSender bot) {
+        this(bot, null, OutboundScheduler.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Constructs a new MessageService instance that sends every request through the given scheduler,
+     * keeping the bot within Telegram's rate limits.
+     *
+     * @param bot               The bot instance used to execute API requests.
+     * @param outboundScheduler The scheduler pacing the requests, or {@code null} to send them directly.
+     * @param priority          The lane in which this service's requests are queued.
+     */
+    public MessageService(DefaultAbsSender bot, OutboundScheduler outboundScheduler,
+                          OutboundScheduler.Priority priority) {
+        this(bot, outboundScheduler, priority, null);
+    }
+
+    /**
+     * Constructs a new MessageService instance that sends every request through the given scheduler
+     * and can delay requests with the given timer service.
+     *
+     * @param bot               The bot instance used to execute API requests.
+     * @param outboundScheduler The scheduler pacing the requests, or {@code null} to send them directly.
+     * @param priority          The lane in which this service's requests are queued.
+     * @param timerService      The TimerService running delayed requests, or {@code null} if they are not needed.
+     */
+    public MessageService(DefaultAbsSender bot, OutboundScheduler outboundScheduler,
+                          OutboundScheduler.Priority priority, TimerService timerService) {
+        this(bot, outboundScheduler, priority, timerService, null);
+    }
 
     /**
-     * Constructs a new MessageService instance.
+     * Constructs a new MessageService instance that sends every request through the given scheduler
+     * and keeps delayed requests in the given store, so they survive a restart.
      *
-     * @param bot The TelegramLongPollingBot instance used to execute API requests.
+     * @param bot               The bot instance used to execute API requests.
+     * @param outboundScheduler The scheduler pacing the requests, or {@code null} to send them directly.
+     * @param priority          The lane in which this service's requests are queued.
+     * @param timerService      The TimerService running delayed requests, or {@code null} if they are not needed.
+     * @param delayedActions    The store keeping delayed requests, or {@code null} to keep them in memory only.
+     *                          Its performers for {@link DelayedActionStore.Kind#DELETE_MESSAGE} and
+     *                          {@link DelayedActionStore.Kind#SEND_MESSAGE} must be registered by the caller.
      */
-    public MessageService(TelegramLongPollingBot bot) {
+    public MessageService(DefaultAbsSender bot, OutboundScheduler outboundScheduler,
+                          OutboundScheduler.Priority priority, TimerService timerService,
+                          DelayedActionStore delayedActions) {
         this.bot = bot;
+        this.outboundScheduler = outboundScheduler;
+        this.priority = priority;
+        this.timerService = timerService;
+        this.delayedActions = delayedActions;
+    }
+
+    /**
+     * Returns a MessageService sharing this one's bot and scheduler whose requests are queued in the given lane.
+     * For example, broadcasts should use {@link OutboundScheduler.Priority#BROADCAST} so they never delay replies.
+     *
+     * @param priority The lane for the returned service's requests.
+     * @return A MessageService queueing its requests with the given priority.
+     */
+    public MessageService withPriority(OutboundScheduler.Priority priority) {
+        return priority == this.priority ? this : new MessageService(bot, outboundScheduler, priority, timerService,
+                delayedActions);
+    }
+
+    /**
+     * Returns the timer service running this service's delayed requests, which handlers can also use
+     * for delayed actions of their own.
+     *
+     * @return The TimerService, or {@code null} if this service has none.
+     */
+    public TimerService getTimerService() {
+        return timerService;
     }
 
     /**
@@ -55,11 +146,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendMessage(Long chatId, String message) {
-        bot.execute(SendMessage.builder()
-                .chatId(chatId)
-                .text(message)
-                .parseMode("MarkdownV2")
-                .build());
+        execute(chatId, () -> bot.execute(sendMessageRequest(chatId, message, null)));
     }
 
     /**
@@ -72,12 +159,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendMessage(Long chatId, String message, ReplyKeyboard replyKeyboard) {
-        bot.execute(SendMessage.builder()
-                .chatId(chatId)
-                .text(message)
-                .parseMode("MarkdownV2")
-                .replyMarkup(replyKeyboard)
-                .build());
+        execute(chatId, () -> bot.execute(sendMessageRequest(chatId, message, replyKeyboard)));
     }
 
     /**
@@ -90,12 +172,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendPhoto(Long chatId, String caption, InputFile photo) {
-        bot.execute(SendPhoto.builder()
-                .chatId(chatId)
-                .caption(caption)
-                .parseMode("MarkdownV2")
-                .photo(photo)
-                .build());
+        execute(chatId, () -> bot.execute(sendPhotoRequest(chatId, caption, photo, null)));
     }
 
     /**
@@ -109,13 +186,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendPhoto(Long chatId, String caption, InputFile photo, ReplyKeyboard replyKeyboard) {
-        bot.execute(SendPhoto.builder()
-                .chatId(chatId)
-                .caption(caption)
-                .parseMode("MarkdownV2")
-                .photo(photo)
-                .replyMarkup(replyKeyboard)
-                .build());
+        execute(chatId, () -> bot.execute(sendPhotoRequest(chatId, caption, photo, replyKeyboard)));
     }
 
     /**
@@ -128,12 +199,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendDocument(Long chatId, String caption, InputFile document) {
-        bot.execute(SendDocument.builder()
-                .chatId(chatId)
-                .document(document)
-                .parseMode("MarkdownV2")
-                .caption(caption)
-                .build());
+        execute(chatId, () -> bot.execute(sendDocumentRequest(chatId, caption, document, null)));
     }
 
     /**
@@ -147,13 +213,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendDocument(Long chatId, String caption, InputFile document, ReplyKeyboard replyKeyboard) {
-        bot.execute(SendDocument.builder()
-                .chatId(chatId)
-                .document(document)
-                .parseMode("MarkdownV2")
-                .caption(caption)
-                .replyMarkup(replyKeyboard)
-                .build());
+        execute(chatId, () -> bot.execute(sendDocumentRequest(chatId, caption, document, replyKeyboard)));
     }
 
     /**
@@ -166,12 +226,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendVideo(Long chatId, String caption, InputFile video) {
-        bot.execute(SendVideo.builder()
-                .chatId(chatId)
-                .caption(caption)
-                .parseMode("MarkdownV2")
-                .video(video)
-                .build());
+        execute(chatId, () -> bot.execute(sendVideoRequest(chatId, caption, video, null)));
     }
 
     /**
@@ -185,13 +240,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendVideo(Long chatId, String caption, InputFile video, ReplyKeyboard replyKeyboard) {
-        bot.execute(SendVideo.builder()
-                .chatId(chatId)
-                .caption(caption)
-                .parseMode("MarkdownV2")
-                .video(video)
-                .replyMarkup(replyKeyboard)
-                .build());
+        execute(chatId, () -> bot.execute(sendVideoRequest(chatId, caption, video, replyKeyboard)));
     }
 
     /**
@@ -204,11 +253,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendPoll(Long chatId, String question, List<String> options) {
-        bot.execute(SendPoll.builder()
-                .chatId(chatId)
-                .question(question)
-                .options(options)
-                .build());
+        execute(chatId, () -> bot.execute(sendPollRequest(chatId, question, options).build()));
     }
 
     /**
@@ -222,12 +267,9 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendPoll(Long chatId, String question, List<String> options, boolean allowMultipleAnswers) {
-        bot.execute(SendPoll.builder()
-                .chatId(chatId)
-                .question(question)
-                .options(options)
+        execute(chatId, () -> bot.execute(sendPollRequest(chatId, question, options)
                 .allowMultipleAnswers(allowMultipleAnswers)
-                .build());
+                .build()));
     }
 
     /**
@@ -241,12 +283,9 @@ public class MessageService {
      */
     @SneakyThrows
     public void sendPoll(Long chatId, String question, List<String> options, String explanation) {
-        bot.execute(SendPoll.builder()
-                .chatId(chatId)
-                .question(question)
-                .options(options)
+        execute(chatId, () -> bot.execute(sendPollRequest(chatId, question, options)
                 .explanation(explanation)
-                .build());
+                .build()));
     }
 
     /**
@@ -261,14 +300,9 @@ public class MessageService {
      **/
     @SneakyThrows
     public void sendPoll(Long chatId, String question, List<String> options, Integer time, ChronoUnit timeUnit) {
-        Integer untilDate = (int) Instant.now().plus(time, timeUnit).getEpochSecond();
-
-        bot.execute(SendPoll.builder()
-                .chatId(chatId)
-                .question(question)
-                .options(options)
-                .closeDate(untilDate)
-                .build());
+        execute(chatId, () -> bot.execute(sendPollRequest(chatId, question, options)
+                .closeDate(closeDate(time, timeUnit))
+                .build()));
     }
 
     /**
@@ -283,11 +317,7 @@ public class MessageService {
     @SneakyThrows
     public void sendMediaGroup(Long chatId, String caption, List<InputMedia> mediaGroup) {
         if (!mediaGroup.isEmpty()) {
-            mediaGroup.get(0).setCaption(caption);
-            bot.execute(SendMediaGroup.builder()
-                    .chatId(chatId)
-                    .medias(mediaGroup)
-                    .build());
+            execute(chatId, () -> bot.execute(sendMediaGroupRequest(chatId, caption, mediaGroup)));
         }
     }
 
@@ -300,10 +330,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void deleteMessage(Long chatId, Integer messageId) {
-        bot.execute(DeleteMessage.builder()
-                .chatId(chatId)
-                .messageId(messageId)
-                .build());
+        executeUnpaced(chatId, () -> bot.execute(deleteMessageRequest(chatId, messageId)));
     }
 
     /**
@@ -316,12 +343,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void editMessage(Long chatId, String message, Integer messageId) {
-        bot.execute(EditMessageText.builder()
-                .chatId(chatId)
-                .text(message)
-                .messageId(messageId)
-                .parseMode("MarkdownV2")
-                .build());
+        executeUnpaced(chatId, () -> bot.execute(editMessageRequest(chatId, message, messageId)));
     }
 
     /**
@@ -334,11 +356,7 @@ public class MessageService {
      */
     @SneakyThrows
     public void editMessageCaption(Long chatId, String caption, Integer messageId) {
-        bot.execute(EditMessageCaption.builder()
-                .chatId(chatId)
-                .messageId(messageId)
-                .caption(caption)
-                .build());
+        executeUnpaced(chatId, () -> bot.execute(editMessageCaptionRequest(chatId, caption, messageId)));
     }
 
     /**
@@ -351,11 +369,8 @@ public class MessageService {
      */
     @SneakyThrows
     public void editMessagePhoto(Long chatId, InputFile media, Integer messageId) {
-        bot.execute(EditMessageMedia.builder()
-                .chatId(chatId)
-                .messageId(messageId)
-                .media(new InputMediaPhoto(media.toString()))
-                .build());
+        executeUnpaced(chatId, () -> bot.execute(
+                editMessageMediaRequest(chatId, new InputMediaPhoto(media.toString()), messageId)));
     }
 
     /**
@@ -368,11 +383,8 @@ public class MessageService {
      */
     @SneakyThrows
     public void editMessageVideo(Long chatId, InputFile media, Integer messageId) {
-        bot.execute(EditMessageMedia.builder()
-                .chatId(chatId)
-                .messageId(messageId)
-                .media(new InputMediaVideo(media.toString()))
-                .build());
+        executeUnpaced(chatId, () -> bot.execute(
+                editMessageMediaRequest(chatId, new InputMediaVideo(media.toString()), messageId)));
     }
 
     /**
@@ -385,10 +397,550 @@ public class MessageService {
      */
     @SneakyThrows
     public void editMessageDocument(Long chatId, InputFile media, Integer messageId) {
-        bot.execute(EditMessageMedia.builder()
+        executeUnpaced(chatId, () -> bot.execute(
+                editMessageMediaRequest(chatId, new InputMediaDocument(media.toString()), messageId)));
+    }
+
+    /**
+     * Asynchronously sends a text message to a specified chat.
+     *
+     * @param chatId  The ID of the chat where the message will be sent.
+     * @param message The text content of the message (supports MarkdownV2 formatting).
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendMessageAsync(Long chatId, String message) {
+        SendMessage request = sendMessageRequest(chatId, message, null);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a text message to a specified chat with a custom reply keyboard.
+     *
+     * @param chatId        The ID of the chat where the message will be sent.
+     * @param message       The text content of the message (supports MarkdownV2 formatting).
+     * @param replyKeyboard The custom reply keyboard to attach to the message.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendMessageAsync(Long chatId, String message, ReplyKeyboard replyKeyboard) {
+        SendMessage request = sendMessageRequest(chatId, message, replyKeyboard);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a photo to a specified chat with a caption.
+     *
+     * @param chatId  The ID of the chat where the photo will be sent.
+     * @param caption The caption for the photo (supports MarkdownV2 formatting).
+     * @param photo   The InputFile containing the photo to send.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendPhotoAsync(Long chatId, String caption, InputFile photo) {
+        SendPhoto request = sendPhotoRequest(chatId, caption, photo, null);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a photo to a specified chat with a caption and a custom reply keyboard.
+     *
+     * @param chatId        The ID of the chat where the photo will be sent.
+     * @param caption       The caption for the photo (supports MarkdownV2 formatting).
+     * @param photo         The InputFile containing the photo to send.
+     * @param replyKeyboard The custom reply keyboard to attach to the message.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendPhotoAsync(Long chatId, String caption, InputFile photo, ReplyKeyboard replyKeyboard) {
+        SendPhoto request = sendPhotoRequest(chatId, caption, photo, replyKeyboard);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a document to a specified chat with a caption.
+     *
+     * @param chatId   The ID of the chat where the document will be sent.
+     * @param caption  The caption for the document (supports MarkdownV2 formatting).
+     * @param document The InputFile containing the document to send.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendDocumentAsync(Long chatId, String caption, InputFile document) {
+        SendDocument request = sendDocumentRequest(chatId, caption, document, null);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a document to a specified chat with a caption and a custom reply keyboard.
+     *
+     * @param chatId        The ID of the chat where the document will be sent.
+     * @param caption       The caption for the document (supports MarkdownV2 formatting).
+     * @param document      The InputFile containing the document to send.
+     * @param replyKeyboard The custom reply keyboard to attach to the message.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendDocumentAsync(Long chatId, String caption, InputFile document, ReplyKeyboard replyKeyboard) {
+        SendDocument request = sendDocumentRequest(chatId, caption, document, replyKeyboard);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a video to a specified chat with a caption.
+     *
+     * @param chatId  The ID of the chat where the video will be sent.
+     * @param caption The caption for the video (supports MarkdownV2 formatting).
+     * @param video   The InputFile containing the video to send.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendVideoAsync(Long chatId, String caption, InputFile video) {
+        SendVideo request = sendVideoRequest(chatId, caption, video, null);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a video to a specified chat with a caption and a custom reply keyboard.
+     *
+     * @param chatId        The ID of the chat where the video will be sent.
+     * @param caption       The caption for the video (supports MarkdownV2 formatting).
+     * @param video         The InputFile containing the video to send.
+     * @param replyKeyboard The custom reply keyboard to attach to the message.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendVideoAsync(Long chatId, String caption, InputFile video, ReplyKeyboard replyKeyboard) {
+        SendVideo request = sendVideoRequest(chatId, caption, video, replyKeyboard);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a poll to a specified chat with a question and options.
+     *
+     * @param chatId   The ID of the chat where the poll will be sent.
+     * @param question The question for the poll.
+     * @param options  The list of options for the poll (at least 2 options required).
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendPollAsync(Long chatId, String question, List<String> options) {
+        SendPoll request = sendPollRequest(chatId, question, options).build();
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a poll to a specified chat with a question, options, and multiple answer support.
+     *
+     * @param chatId               The ID of the chat where the poll will be sent.
+     * @param question             The question for the poll.
+     * @param options              The list of options for the poll (at least 2 options required).
+     * @param allowMultipleAnswers Whether users can select multiple answers.
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendPollAsync(Long chatId, String question, List<String> options, boolean allowMultipleAnswers) {
+        SendPoll request = sendPollRequest(chatId, question, options)
+                .allowMultipleAnswers(allowMultipleAnswers)
+                .build();
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a poll to a specified chat with a question, options, and an explanation for the correct answer.
+     *
+     * @param chatId      The ID of the chat where the poll will be sent.
+     * @param question    The question for the poll.
+     * @param options     The list of options for the poll (at least 2 options required).
+     * @param explanation The explanation to show when the poll is answered (e.g., for quizzes).
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendPollAsync(Long chatId, String question, List<String> options, String explanation) {
+        SendPoll request = sendPollRequest(chatId, question, options)
+                .explanation(explanation)
+                .build();
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a poll to a specified chat with a question, options, and a time limit for voting.
+     *
+     * @param chatId   The ID of the chat where the poll will be sent.
+     * @param question The question for the poll.
+     * @param options  The list of options for the poll (at least 2 options required).
+     * @param time     The duration for which the poll will be open.
+     * @param timeUnit The unit of time for the duration (e.g., ChronoUnit.SECONDS, ChronoUnit.MINUTES).
+     * @return A future completed with the sent message, or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> sendPollAsync(Long chatId, String question, List<String> options, Integer time, ChronoUnit timeUnit) {
+        SendPoll request = sendPollRequest(chatId, question, options)
+                .closeDate(closeDate(time, timeUnit))
+                .build();
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Asynchronously sends a media group (e.g., multiple photos or videos) to a specified chat with a caption.
+     * The caption is applied to the first media item in the group.
+     *
+     * @param chatId     The ID of the chat where the media group will be sent.
+     * @param caption    The caption for the media group (applied to the first item).
+     * @param mediaGroup The list of InputMedia objects (e.g., photos, videos) to send.
+     * @return A future completed with the sent messages (empty if the media group is empty),
+     * or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<List<Message>> sendMediaGroupAsync(Long chatId, String caption, List<InputMedia> mediaGroup) {
+        if (mediaGroup.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        SendMediaGroup request = sendMediaGroupRequest(chatId, caption, mediaGroup);
+        return executeAsync(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Answers a callback query, which stops the loading indicator of the pressed inline button.
+     * Answers do not count towards the message rate limits, so they are sent directly.
+     *
+     * @param callbackQueryId The ID of the callback query.
+     * @param text            The notification shown to the user, or {@code null} for none.
+     * @param showAlert       Whether the notification is shown as an alert instead of at the top of the chat.
+     *                        If the Telegram API request fails.
+     */
+    @SneakyThrows
+    public void answerCallbackQuery(String callbackQueryId, String text, boolean showAlert) {
+        bot.execute(AnswerCallbackQuery.builder()
+                .callbackQueryId(callbackQueryId)
+                .text(text)
+                .showAlert(showAlert)
+                .build());
+    }
+
+    /**
+     * Asynchronously deletes a message from a specified chat.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param messageId The ID of the message to delete.
+     * @return A future completed with {@code true} once the message is deleted, or completed exceptionally
+     * if the Telegram API request fails.
+     */
+    public CompletableFuture<Boolean> deleteMessageAsync(Long chatId, Integer messageId) {
+        DeleteMessage request = deleteMessageRequest(chatId, messageId);
+        return executeUnpaced(chatId, () -> bot.execute(request), () -> bot.executeAsync(request));
+    }
+
+    /**
+     * Deletes a message from a specified chat once the given delay has passed, for example to remove
+     * a temporary notice after 30 seconds. A failed deletion is logged. With a {@link DelayedActionStore},
+     * a pending deletion survives a restart of the bot.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param messageId The ID of the message to delete.
+     * @param delay     The delay after which the message is deleted.
+     * @return The handle of the deletion, which can cancel it until it happens.
+     * @throws IllegalStateException If this service has neither a {@link TimerService} nor a {@link DelayedActionStore}.
+     */
+    public DelayedAction deleteMessageLater(Long chatId, Integer messageId, Duration delay) {
+        if (delayedActions != null) {
+            return delayedActions.schedule(DelayedActionStore.Kind.DELETE_MESSAGE, chatId, messageId, null, delay);
+        }
+        return new DelayedAction(null, 0, requireTimerService().schedule(() -> deleteMessageAsync(chatId, messageId)
+                .exceptionally(e -> {
+                    log.warn("Failed to delete message {} in chat {}: {}", messageId, chatId, e.getMessage());
+                    return false;
+                }), delay));
+    }
+
+    /**
+     * Sends a text message to a specified chat once the given delay has passed, for example a reminder.
+     * A failed send is logged. With a {@link DelayedActionStore}, a pending message survives a restart of the bot.
+     *
+     * @param chatId  The ID of the chat where the message will be sent.
+     * @param message The text content of the message (supports MarkdownV2 formatting).
+     * @param delay   The delay after which the message is sent.
+     * @return The handle of the message, which can cancel it until it is sent.
+     * @throws IllegalStateException If this service has neither a {@link TimerService} nor a {@link DelayedActionStore}.
+     */
+    public DelayedAction sendMessageLater(Long chatId, String message, Duration delay) {
+        if (delayedActions != null) {
+            return delayedActions.schedule(DelayedActionStore.Kind.SEND_MESSAGE, chatId, 0, message, delay);
+        }
+        return new DelayedAction(null, 0, requireTimerService().schedule(() -> sendMessageAsync(chatId, message)
+                .exceptionally(e -> {
+                    log.warn("Failed to send delayed message to chat {}: {}", chatId, e.getMessage());
+                    return null;
+                }), delay));
+    }
+
+    /**
+     * Asynchronously edits the text of an existing message in a specified chat.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param message   The new text content of the message (supports MarkdownV2 formatting).
+     * @param messageId The ID of the message to edit.
+     * @return A future completed with the edited message, or with {@code null} if Telegram only confirmed the edit,
+     * or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> editMessageAsync(Long chatId, String message, Integer messageId) {
+        EditMessageText request = editMessageRequest(chatId, message, messageId);
+        return executeUnpaced(chatId, () -> bot.execute(request), () -> bot.executeAsync(request))
+                .thenApply(MessageService::asMessage);
+    }
+
+    /**
+     * Asynchronously edits the caption of an existing media message in a specified chat.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param caption   The new caption for the media message.
+     * @param messageId The ID of the message to edit.
+     * @return A future completed with the edited message, or with {@code null} if Telegram only confirmed the edit,
+     * or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> editMessageCaptionAsync(Long chatId, String caption, Integer messageId) {
+        EditMessageCaption request = editMessageCaptionRequest(chatId, caption, messageId);
+        return executeUnpaced(chatId, () -> bot.execute(request), () -> bot.executeAsync(request))
+                .thenApply(MessageService::asMessage);
+    }
+
+    /**
+     * Asynchronously edits the photo of an existing media message in a specified chat.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param media     The new InputFile containing the photo to replace the existing media.
+     * @param messageId The ID of the message to edit.
+     * @return A future completed with the edited message, or with {@code null} if Telegram only confirmed the edit,
+     * or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> editMessagePhotoAsync(Long chatId, InputFile media, Integer messageId) {
+        EditMessageMedia request = editMessageMediaRequest(chatId, new InputMediaPhoto(media.toString()), messageId);
+        return executeUnpaced(chatId, () -> bot.execute(request), () -> bot.executeAsync(request))
+                .thenApply(MessageService::asMessage);
+    }
+
+    /**
+     * Asynchronously edits the video of an existing media message in a specified chat.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param media     The new InputFile containing the video to replace the existing media.
+     * @param messageId The ID of the message to edit.
+     * @return A future completed with the edited message, or with {@code null} if Telegram only confirmed the edit,
+     * or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> editMessageVideoAsync(Long chatId, InputFile media, Integer messageId) {
+        EditMessageMedia request = editMessageMediaRequest(chatId, new InputMediaVideo(media.toString()), messageId);
+        return executeUnpaced(chatId, () -> bot.execute(request), () -> bot.executeAsync(request))
+                .thenApply(MessageService::asMessage);
+    }
+
+    /**
+     * Asynchronously edits the document of an existing media message in a specified chat.
+     *
+     * @param chatId    The ID of the chat where the message is located.
+     * @param media     The new InputFile containing the document to replace the existing media.
+     * @param messageId The ID of the message to edit.
+     * @return A future completed with the edited message, or with {@code null} if Telegram only confirmed the edit,
+     * or completed exceptionally if the Telegram API request fails.
+     */
+    public CompletableFuture<Message> editMessageDocumentAsync(Long chatId, InputFile media, Integer messageId) {
+        EditMessageMedia request = editMessageMediaRequest(chatId, new InputMediaDocument(media.toString()), messageId);
+        return executeUnpaced(chatId, () -> bot.execute(request), () -> bot.executeAsync(request))
+                .thenApply(MessageService::asMessage);
+    }
+
+    private TimerService requireTimerService() {
+        if (timerService == null) {
+            throw new IllegalStateException("Delayed requests need a MessageService with a TimerService");
+        }
+        return timerService;
+    }
+
+    /**
+     * Runs a blocking request, through the outbound scheduler if there is one, and waits for its result.
+     *
+     * @param chatId  The ID of the chat the request is addressed to.
+     * @param request The blocking request.
+     * @param <T>     The result type of the request.
+     * @return The result of the request.
+     */
+    @SneakyThrows
+    private <T> T execute(Long chatId, Callable<T> request) {
+        if (outboundScheduler == null) {
+            return request.call();
+        }
+        try {
+            return outboundScheduler.submit(chatId, priority, request).join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs a blocking request that does not post a message, through the outbound scheduler if there is one,
+     * where it only passes the global rate limit, and waits for its result.
+     *
+     * @param chatId  The ID of the chat the request is addressed to.
+     * @param request The blocking request.
+     * @param <T>     The result type of the request.
+     * @return The result of the request.
+     */
+    @SneakyThrows
+    private <T> T executeUnpaced(Long chatId, Callable<T> request) {
+        if (outboundScheduler == null) {
+            return request.call();
+        }
+        try {
+            return outboundScheduler.submit(chatId, priority, request, false).join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs a request asynchronously: through the outbound scheduler if there is one, otherwise
+     * with the bot's own asynchronous execution.
+     *
+     * @param chatId   The ID of the chat the request is addressed to.
+     * @param blocking The request as a blocking call, used by the outbound scheduler.
+     * @param direct   The request as an asynchronous call, used without an outbound scheduler.
+     * @param <T>      The result type of the request.
+     * @return A future completed with the result of the request.
+     */
+    @SneakyThrows
+    private <T> CompletableFuture<T> executeAsync(Long chatId, Callable<T> blocking, Callable<CompletableFuture<T>> direct) {
+        if (outboundScheduler == null) {
+            return withLogContext(direct.call());
+        }
+        return withLogContext(outboundScheduler.submit(chatId, priority, blocking));
+    }
+
+    /**
+     * Runs a request that does not post a message asynchronously: through the outbound scheduler if there is one,
+     * where it only passes the global rate limit, otherwise with the bot's own asynchronous execution.
+     *
+     * @param chatId   The ID of the chat the request is addressed to.
+     * @param blocking The request as a blocking call, used by the outbound scheduler.
+     * @param direct   The request as an asynchronous call, used without an outbound scheduler.
+     * @param <T>      The result type of the request.
+     * @return A future completed with the result of the request.
+     */
+    @SneakyThrows
+    private <T> CompletableFuture<T> executeUnpaced(Long chatId, Callable<T> blocking, Callable<CompletableFuture<T>> direct) {
+        if (outboundScheduler == null) {
+            return withLogContext(direct.call());
+        }
+        return withLogContext(outboundScheduler.submit(chatId, priority, blocking, false));
+    }
+
+    /**
+     * Returns a future completed like the given one, but with the calling thread's {@link LogContext}, so
+     * continuations that run on completion log with the context of the handler that made the request.
+     *
+     * @param future The future of a request.
+     * @param <T>    The result type of the request.
+     * @return The given future if the context is empty, otherwise a future completed with the context.
+     */
+    private static <T> CompletableFuture<T> withLogContext(CompletableFuture<T> future) {
+        if (LogContext.current().isEmpty()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete(LogContext.wrap((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }));
+        return result;
+    }
+
+    private static SendMessage sendMessageRequest(Long chatId, String message, ReplyKeyboard replyKeyboard) {
+        return SendMessage.builder()
+                .chatId(chatId)
+                .text(message)
+                .parseMode("MarkdownV2")
+                .replyMarkup(replyKeyboard)
+                .build();
+    }
+
+    private static SendPhoto sendPhotoRequest(Long chatId, String caption, InputFile photo, ReplyKeyboard replyKeyboard) {
+        return SendPhoto.builder()
+                .chatId(chatId)
+                .caption(caption)
+                .parseMode("MarkdownV2")
+                .photo(photo)
+                .replyMarkup(replyKeyboard)
+                .build();
+    }
+
+    private static SendDocument sendDocumentRequest(Long chatId, String caption, InputFile document, ReplyKeyboard replyKeyboard) {
+        return SendDocument.builder()
+                .chatId(chatId)
+                .document(document)
+                .parseMode("MarkdownV2")
+                .caption(caption)
+                .replyMarkup(replyKeyboard)
+                .build();
+    }
+
+    private static SendVideo sendVideoRequest(Long chatId, String caption, InputFile video, ReplyKeyboard replyKeyboard) {
+        return SendVideo.builder()
+                .chatId(chatId)
+                .caption(caption)
+                .parseMode("MarkdownV2")
+                .video(video)
+                .replyMarkup(replyKeyboard)
+                .build();
+    }
+
+    private static SendPoll.SendPollBuilder sendPollRequest(Long chatId, String question, List<String> options) {
+        return SendPoll.builder()
+                .chatId(chatId)
+                .question(question)
+                .options(options);
+    }
+
+    private static SendMediaGroup sendMediaGroupRequest(Long chatId, String caption, List<InputMedia> mediaGroup) {
+        mediaGroup.get(0).setCaption(caption);
+        return SendMediaGroup.builder()
+                .chatId(chatId)
+                .medias(mediaGroup)
+                .build();
+    }
+
+    private static DeleteMessage deleteMessageRequest(Long chatId, Integer messageId) {
+        return DeleteMessage.builder()
                 .chatId(chatId)
                 .messageId(messageId)
-                .media(new InputMediaDocument(media.toString()))
-                .build());
+                .build();
+    }
+
+    private static EditMessageText editMessageRequest(Long chatId, String message, Integer messageId) {
+        return EditMessageText.builder()
+                .chatId(chatId)
+                .text(message)
+                .messageId(messageId)
+                .parseMode("MarkdownV2")
+                .build();
+    }
+
+    private static EditMessageCaption editMessageCaptionRequest(Long chatId, String caption, Integer messageId) {
+        return EditMessageCaption.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .caption(caption)
+                .build();
+    }
+
+    private static EditMessageMedia editMessageMediaRequest(Long chatId, InputMedia media, Integer messageId) {
+        return EditMessageMedia.builder()
+                .chatId(chatId)
+                .messageId(messageId)
+                .media(media)
+                .build();
+    }
+
+    private static Integer closeDate(Integer time, ChronoUnit timeUnit) {
+        return (int) Instant.now().plus(time, timeUnit).getEpochSecond();
+    }
+
+    /**
+     * Converts the result of an edit request to a message. Telegram answers edits of
+     * inline messages with {@code true} instead of the edited message.
+     *
+     * @param result The result of the edit request.
+     * @return The edited message, or {@code null} if Telegram returned no message.
+     */
+    private static Message asMessage(Serializable result) {
+        return result instanceof Message ? (Message) result : null;
     }
 }
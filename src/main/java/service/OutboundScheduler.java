@@ -0,0 +1,327 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import utils.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules outbound Telegram API requests so they stay within Telegram's rate limits.
+ * Every request is addressed to a chat and passes two token buckets before it is sent: a global one
+ * and one for its chat, which is paced per second for private chats and per minute for groups and channels.
+ * Requests that do not post a message, such as edits and deletions, are not limited per chat by Telegram and
+ * only pass the global bucket.
+ *
+ * <p>Requests wait in one of two priority lanes. {@link Priority#INTERACTIVE} requests, such as replies
+ * to users, are always sent before {@link Priority#BROADCAST} requests, such as scheduled mass messages.
+ * Within a chat, requests are sent in the order they were submitted. When Telegram still answers with
+ * {@code 429 Too Many Requests}, the chat is blocked for the {@code retry_after} period it reports and
+ * the request is retried.</p>
+ *
+ * <p>Pacing happens on a single scheduler thread; the requests themselves run on the given executor,
+ * with the {@link LogContext} of the thread that submitted them.</p>
+ */
+@Slf4j
+public class OutboundScheduler {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int MAX_SCAN = 1_024;
+    private static final long IDLE_SWEEP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * The priority lanes of outbound requests.
+     */
+    public enum Priority {
+        /**
+         * Requests answering a user, sent first.
+         */
+        INTERACTIVE,
+
+        /**
+         * Bulk requests such as broadcasts and scheduled messages, sent when no interactive request is ready.
+         */
+        BROADCAST
+    }
+
+    private final double privateChatPerSecond;
+    private final double groupPerMinute;
+    private final int maxRetries;
+    private final ExecutorService sender;
+    private final TokenBucket global;
+    private final Map<Long, TokenBucket> chats = new HashMap<>();
+    private final ArrayDeque<Request<?>>[] lanes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Scratch state of the scheduler thread, reused across scans.
+    private final Set<Long> skipped = new HashSet<>();
+    private long laneWait;
+    private long lastSweep = System.nanoTime();
+
+    /**
+     * Constructs a new OutboundScheduler instance and starts its scheduler thread.
+     *
+     * @param globalPerSecond      The maximum number of requests per second across all chats.
+     * @param privateChatPerSecond The maximum number of requests per second to a single private chat.
+     * @param groupPerMinute       The maximum number of requests per minute to a single group or channel.
+     * @param maxRetries           How often a request rejected with {@code 429} is retried.
+     * @param sender               The executor running the requests.
+     */
+    @SuppressWarnings("unchecked")
+    public OutboundScheduler(double globalPerSecond, double privateChatPerSecond, double groupPerMinute,
+                             int maxRetries, ExecutorService sender) {
+        this.privateChatPerSecond = privateChatPerSecond;
+        this.groupPerMinute = groupPerMinute;
+        this.maxRetries = maxRetries;
+        this.sender = sender;
+        this.global = new TokenBucket(1, globalPerSecond, 1, TimeUnit.SECONDS, System.nanoTime());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArrayDeque<Request<?>>[] lanes = new ArrayDeque[Priority.values().length];
+        this.lanes = lanes;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+        this.thread = new Thread(this::run, "jbotlib-outbound");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a request addressed to the given chat.
+     *
+     * @param chatId   The ID of the chat the request is addressed to.
+     * @param priority The lane of the request.
+     * @param request  The blocking request to run once the rate limits permit it.
+     * @param <T>      The result type of the request.
+     * @return A future completed with the result of the request, or completed exceptionally if it fails.
+     */
+    public <T> CompletableFuture<T> submit(long chatId, Priority priority, Callable<T> request) {
+        return submit(chatId, priority, request, true);
+    }
+
+    /**
+     * Queues a request addressed to the given chat that may or may not count against the chat's limit.
+     *
+     * @param chatId   The ID of the chat the request is addressed to.
+     * @param priority The lane of the request.
+     * @param request  The blocking request to run once the rate limits permit it.
+     * @param paced    Whether the request posts a message and therefore passes the chat's bucket. Other
+     *                 requests only pass the global bucket, but still wait while the chat is blocked by a
+     *                 {@code 429} answer.
+     * @param <T>      The result type of the request.
+     * @return A future completed with the result of the request, or completed exceptionally if it fails.
+     */
+    public <T> CompletableFuture<T> submit(long chatId, Priority priority, Callable<T> request, boolean paced) {
+        Request<T> queued = new Request<>(chatId, priority, paced, LogContext.wrap(request));
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("OutboundScheduler has been shut down");
+            }
+            lanes[priority.ordinal()].addLast(queued);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return queued.future;
+    }
+
+    /**
+     * Returns the number of requests waiting for the rate limits.
+     *
+     * @return The number of queued requests.
+     */
+    public int pendingRequests() {
+        lock.lock();
+        try {
+            int pending = 0;
+            for (ArrayDeque<Request<?>> lane : lanes) {
+                pending += lane.size();
+            }
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the scheduler and the sender. Requests still waiting are cancelled.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            for (ArrayDeque<Request<?>> lane : lanes) {
+                for (Request<?> request : lane) {
+                    request.future.completeExceptionally(new CancellationException("OutboundScheduler has been shut down"));
+                }
+                lane.clear();
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        sender.shutdown();
+    }
+
+    private void run() {
+        lock.lock();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                sweepIdleBuckets(now);
+
+                long wait = global.nanosUntilAvailable(now);
+                if (wait == 0) {
+                    Request<?> next = null;
+                    wait = Long.MAX_VALUE;
+                    for (ArrayDeque<Request<?>> lane : lanes) {
+                        next = pollReady(lane, now);
+                        if (next != null) {
+                            break;
+                        }
+                        wait = Math.min(wait, laneWait);
+                    }
+                    if (next != null) {
+                        global.consume(now);
+                        if (next.paced) {
+                            bucket(next.chatId, now).consume(now);
+                        }
+                        Request<?> request = next;
+                        sender.execute(() -> send(request));
+                        continue;
+                    }
+                    if (wait == Long.MAX_VALUE) {
+                        changed.await();
+                        continue;
+                    }
+                }
+                changed.awaitNanos(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the first request of the lane whose chat may be sent to now. Once a chat
+     * turns out to be limited, its later paced requests are skipped too, preserving the order of the messages
+     * within the chat. Unpaced requests only wait while their chat is blocked.
+     * Sets {@link #laneWait} to the shortest wait among the limited chats when no request is ready.
+     */
+    private Request<?> pollReady(ArrayDeque<Request<?>> lane, long now) {
+        laneWait = Long.MAX_VALUE;
+        skipped.clear();
+        int scanned = 0;
+        for (Iterator<Request<?>> it = lane.iterator(); it.hasNext() && scanned < MAX_SCAN; scanned++) {
+            Request<?> request = it.next();
+            if (!request.paced) {
+                TokenBucket bucket = chats.get(request.chatId);
+                long blocked = bucket != null ? bucket.nanosUntilUnblocked(now) : 0;
+                if (blocked == 0) {
+                    it.remove();
+                    return request;
+                }
+                laneWait = Math.min(laneWait, blocked);
+                continue;
+            }
+            if (skipped.contains(request.chatId)) {
+                continue;
+            }
+            long wait = bucket(request.chatId, now).nanosUntilAvailable(now);
+            if (wait == 0) {
+                it.remove();
+                return request;
+            }
+            laneWait = Math.min(laneWait, wait);
+            skipped.add(request.chatId);
+        }
+        return null;
+    }
+
+    private TokenBucket bucket(long chatId, long now) {
+        TokenBucket bucket = chats.get(chatId);
+        if (bucket == null) {
+            bucket = chatId < 0
+                    ? new TokenBucket(1, groupPerMinute, 1, TimeUnit.MINUTES, now)
+                    : new TokenBucket(1, privateChatPerSecond, 1, TimeUnit.SECONDS, now);
+            chats.put(chatId, bucket);
+        }
+        return bucket;
+    }
+
+    private void sweepIdleBuckets(long now) {
+        if (now - lastSweep >= IDLE_SWEEP_NANOS) {
+            chats.values().removeIf(bucket -> bucket.isIdle(now));
+            lastSweep = now;
+        }
+    }
+
+    private <T> void send(Request<T> request) {
+        try {
+            request.future.complete(request.call.call());
+        } catch (TelegramApiRequestException e) {
+            if (e.getErrorCode() != null && e.getErrorCode() == TOO_MANY_REQUESTS && request.attempts < maxRetries) {
+                retryLater(request, e);
+            } else {
+                request.future.completeExceptionally(e);
+            }
+        } catch (Exception e) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private void retryLater(Request<?> request, TelegramApiRequestException e) {
+        int retryAfter = e.getParameters() != null && e.getParameters().getRetryAfter() != null
+                ? e.getParameters().getRetryAfter()
+                : 1;
+        log.warn("Rate limited in chat {}, retrying in {}s", request.chatId, retryAfter);
+
+        lock.lock();
+        try {
+            if (!running) {
+                request.future.completeExceptionally(e);
+                return;
+            }
+            long now = System.nanoTime();
+            bucket(request.chatId, now).blockUntil(now + TimeUnit.SECONDS.toNanos(retryAfter), now);
+            request.attempts++;
+            lanes[request.priority.ordinal()].addFirst(request);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Request<T> {
+        private final long chatId;
+        private final Priority priority;
+        private final boolean paced;
+        private final Callable<T> call;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private int attempts;
+
+        private Request(long chatId, Priority priority, boolean paced, Callable<T> call) {
+            this.chatId = chatId;
+            this.priority = priority;
+            this.paced = paced;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders exception stack traces for the file log.
+ * Traces are truncated to a number of frames per exception, causes included, and an exception whose trace
+ * was rendered recently is only referred to by number instead of being rendered again, so an error repeated
+ * thousands of times does not fill the log with identical traces.
+ *
+ * <p>Traces are identified by a fingerprint of the exception classes and their frames, not by the message,
+ * so the same failure with different messages is still recognized. A reference only points back a limited
+ * time: once a trace was last rendered longer ago than the expiry, it is rendered again under its number, so
+ * the full trace can still be found in the current log file after the old one was rolled away.</p>
+ */
+class StackTraceRenderer {
+    private static final int MAX_CAUSES = 16;
+
+    private final int maxFrames;
+    private final long expiryNanos;
+    private final Map<Long, Rendered> recent;
+    private int nextNumber = 1;
+
+    /**
+     * The number a trace was rendered under and when it was last rendered in full.
+     */
+    private static final class Rendered {
+        private final int number;
+        private long renderedAt;
+
+        private Rendered(int number, long renderedAt) {
+            this.number = number;
+            this.renderedAt = renderedAt;
+        }
+    }
+
+    /**
+     * Constructs a new StackTraceRenderer instance.
+     *
+     * @param maxFrames  The maximum number of frames rendered per exception in the cause chain.
+     * @param maxRecent  How many distinct traces are remembered for deduplication.
+     * @param expiry     How long after a trace was rendered in full it is only referred to by number.
+     */
+    StackTraceRenderer(int maxFrames, int maxRecent, Duration expiry) {
+        this.maxFrames = maxFrames;
+        this.expiryNanos = expiry.toNanos();
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Rendered> eldest) {
+                return size() > maxRecent;
+            }
+        };
+    }
+
+    /**
+     * Appends the stack trace of the given exception, or a reference to an identical trace rendered before.
+     *
+     * @param throwable The exception.
+     * @param builder   The builder to append to.
+     */
+    void render(Throwable throwable, StringBuilder builder) {
+        long fingerprint = TraceFingerprint.of(throwable, MAX_CAUSES, Integer.MAX_VALUE);
+        long now = System.nanoTime();
+        boolean repeated;
+        int number;
+        synchronized (recent) {
+            Rendered rendered = recent.get(fingerprint);
+            if (rendered == null) {
+                rendered = new Rendered(nextNumber++, now);
+                recent.put(fingerprint, rendered);
+                repeated = false;
+            } else {
+                repeated = now - rendered.renderedAt < expiryNanos;
+                if (!repeated) {
+                    rendered.renderedAt = now;
+                }
+            }
+            number = rendered.number;
+        }
+        if (repeated) {
+            builder.append("Stacktrace #").append(number).append(" (repeated)");
+            return;
+        }
+
+        builder.append("Stacktrace #").append(number).append(':');
+        Set<Throwable> rendered = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Throwable current = throwable; current != null && rendered.add(current); current = current.getCause()) {
+            if (current != throwable) {
+                builder.append('\n').append("Caused by: ").append(current);
+            }
+            StackTraceElement[] frames = current.getStackTrace();
+            int shown = Math.min(frames.length, maxFrames);
+            for (int i = 0; i < shown; i++) {
+                builder.append('\n').append("\tat ").append(frames[i]);
+            }
+            if (frames.length > shown) {
+                builder.append('\n').append("\t... ").append(frames.length - shown).append(" more");
+            }
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package service;
+
+import annotations.ScheduledTask;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs a {@link ScheduledTask} for every active chat, spread over a fixed number of parallel shards.
+ * Each run takes a snapshot of the {@link ActiveChatRegistry}, and every shard claims the next chat from a
+ * shared cursor until none are left, so a slow chat only holds up its own shard. Messages sent by the task go
+ * through the {@link OutboundScheduler}, so the shards wait on the outbound rate limit instead of exceeding it.
+ *
+ * <p>A run stops claiming chats once its time budget is used up, and the chats it did not reach are counted
+ * as skipped. A spread run paces its chats evenly over the budget instead of sending to all of them at once,
+ * so the task adds a steady load rather than a burst at the start of every run. A tick that arrives while the
+ * previous run is still going is skipped instead of starting an overlapping run. The progress of the current
+ * or last run can be read while it runs.</p>
+ *
+ * <p>The executor must be able to run all shards at once, for example a pool of {@code shards} threads used by
+ * this task alone; shards waiting behind the shards of another task would find their budget used up.</p>
+ */
+public class TaskFanOut implements Runnable {
+    private final String name;
+    private final LongConsumer task;
+    private final ActiveChatRegistry activeChats;
+    private final Executor executor;
+    private final int shards;
+    private final long budgetNanos;
+    private final boolean spread;
+    private final EventLogger eventLogger;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder skippedTicks = new LongAdder();
+    private volatile Run current;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new TaskFanOut instance.
+     *
+     * @param name        The name of the task, used in log messages.
+     * @param task        The task run for each chat.
+     * @param activeChats The registry of chats the task is run for.
+     * @param executor    The executor running the shards.
+     * @param shards      The number of chats the task runs for in parallel.
+     * @param budget      The longest time a run may take.
+     * @param eventLogger The EventLogger instance for logging failures and progress.
+     */
+    public TaskFanOut(String name, LongConsumer task, ActiveChatRegistry activeChats, Executor executor,
+                      int shards, Duration budget, EventLogger eventLogger) {
+        this(name, task, activeChats, executor, shards, budget, false, eventLogger);
+    }
+
+    /**
+     * Constructs a new TaskFanOut instance that may pace its chats over the time budget.
+     *
+     * @param name        The name of the task, used in log messages.
+     * @param task        The task run for each chat.
+     * @param activeChats The registry of chats the task is run for.
+     * @param executor    The executor running the shards.
+     * @param shards      The number of chats the task runs for in parallel.
+     * @param budget      The longest time a run may take.
+     * @param spread      Whether the chats of a run are paced evenly over its budget.
+     * @param eventLogger The EventLogger instance for logging failures and progress.
+     */
+    public TaskFanOut(String name, LongConsumer task, ActiveChatRegistry activeChats, Executor executor,
+                      int shards, Duration budget, boolean spread, EventLogger eventLogger) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.name = name;
+        this.task = task;
+        this.activeChats = activeChats;
+        this.executor = executor;
+        this.shards = shards;
+        this.budgetNanos = budget.toNanos();
+        this.spread = spread;
+        this.eventLogger = eventLogger;
+    }
+
+    /**
+     * Starts a run over the current active chats with the time budget given on construction, unless
+     * the previous run is still going. Returns as soon as the shards are started.
+     */
+    @Override
+    public void run() {
+        start(budgetNanos);
+    }
+
+    /**
+     * Starts a run over the current active chats with the given time budget, unless the previous run is
+     * still going. Returns as soon as the shards are started.
+     *
+     * @param budget The longest time this run may take.
+     */
+    public void run(Duration budget) {
+        start(budget.toNanos());
+    }
+
+    private void start(long budgetNanos) {
+        if (cancelled) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            skippedTicks.increment();
+            Run run = current;
+            if (run != null) {
+                eventLogger.logWarn("Skipped scheduled task {}: the previous run still has {} of {} chats left",
+                        name, run.total - run.claimed(), run.total);
+            }
+            return;
+        }
+        Run run;
+        try {
+            run = new Run(activeChats.snapshot(), budgetNanos, spread);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        current = run;
+
+        int workers = Math.min(shards, run.total);
+        if (workers == 0) {
+            finish(run);
+            return;
+        }
+        run.activeShards.set(workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(LogContext.wrap(() -> work(run)));
+            } catch (RejectedExecutionException e) {
+                for (int j = i; j < workers; j++) {
+                    shardDone(run);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stops the current run after the chats it is sending to and prevents further runs.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the name of the task.
+     *
+     * @return The task name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether a run is in progress.
+     *
+     * @return {@code true} if the task is running.
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Returns the number of chats in the current or last run.
+     *
+     * @return The number of chats, or {@code 0} if the task has not run yet.
+     */
+    public int getTotalChats() {
+        Run run = current;
+        return run != null ? run.total : 0;
+    }
+
+    /**
+     * Returns the number of chats the task completed for in the current or last run.
+     *
+     * @return The number of completed chats.
+     */
+    public long getCompletedChats() {
+        Run run = current;
+        return run != null ? run.completed.sum() : 0;
+    }
+
+    /**
+     * Returns the number of chats the task failed for in the current or last run.
+     *
+     * @return The number of failed chats.
+     */
+    public long getFailedChats() {
+        Run run = current;
+        return run != null ? run.failed.sum() : 0;
+    }
+
+    /**
+     * Returns the number of chats the last run did not reach within its time budget.
+     *
+     * @return The number of skipped chats, or {@code 0} while a run is in progress.
+     */
+    public int getSkippedChats() {
+        Run run = current;
+        return run != null && !running.get() ? run.total - run.claimed() : 0;
+    }
+
+    /**
+     * Returns the number of ticks skipped because the previous run was still going.
+     *
+     * @return The number of skipped ticks.
+     */
+    public long getSkippedTicks() {
+        return skippedTicks.sum();
+    }
+
+    private void work(Run run) {
+        LogContext context = LogContext.current().put("task", name);
+        try {
+            while (!cancelled && System.nanoTime() - run.deadline < 0) {
+                int index = run.cursor.getAndIncrement();
+                if (index >= run.total) {
+                    break;
+                }
+                if (run.spread && !awaitSlot(run, index)) {
+                    break;
+                }
+                context.put("chatId", run.chatIds[index]);
+                try {
+                    task.accept(run.chatIds[index]);
+                    run.completed.increment();
+                } catch (Exception e) {
+                    run.failed.increment();
+                    eventLogger.logError(e, "scheduled_task_execution");
+                }
+            }
+        } finally {
+            context.remove("task");
+            context.remove("chatId");
+            shardDone(run);
+        }
+    }
+
+    /**
+     * Waits until the chat with the given index is due in a spread run.
+     *
+     * @return {@code false} if the run was cancelled while waiting.
+     */
+    private boolean awaitSlot(Run run, int index) {
+        long slot = run.startedAt + (long) ((double) index / run.total * run.budgetNanos);
+        long remaining;
+        while ((remaining = slot - System.nanoTime()) > 0) {
+            if (cancelled) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+        }
+        return true;
+    }
+
+    private void shardDone(Run run) {
+        if (run.activeShards.decrementAndGet() == 0) {
+            finish(run);
+        }
+    }
+
+    private void finish(Run run) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.startedAt);
+        int skipped = run.total - run.claimed();
+        if (skipped > 0) {
+            eventLogger.logWarn("Scheduled task {} {} after {} ms: {} of {} chats skipped", name,
+                    cancelled ? "was stopped" : "ran out of its time budget", elapsedMillis, skipped, run.total);
+        }
+        eventLogger.logInfo("Scheduled task {} ran for {} of {} chats ({} failed) in {} ms",
+                name, run.completed.sum(), run.total, run.failed.sum(), elapsedMillis);
+        running.set(false);
+    }
+
+    /**
+     * The state of a single run.
+     */
+    private static final class Run {
+        final long[] chatIds;
+        final int total;
+        final long startedAt = System.nanoTime();
+        final long budgetNanos;
+        final long deadline;
+        final boolean spread;
+        final AtomicInteger cursor = new AtomicInteger();
+        final AtomicInteger activeShards = new AtomicInteger();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        Run(long[] chatIds, long budgetNanos, boolean spread) {
+            this.chatIds = chatIds;
+            this.total = chatIds.length;
+            this.budgetNanos = budgetNanos;
+            this.deadline = startedAt + budgetNanos;
+            this.spread = spread;
+        }
+
+        int claimed() {
+            return Math.min(cursor.get(), total);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package service;
+
+import annotations.ScheduledTask;
+import utils.CronExpression;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When the runs of a {@link ScheduledTask} are due, derived from its interval or cron expression.
+ * Due times are nominal: jitter is drawn separately for every run and never shifts the schedule itself,
+ * so a jittered task does not drift.
+ */
+final class TaskSchedule {
+    private final long intervalMillis;
+    private final long initialDelayMillis;
+    private final CronExpression cron;
+    private final ZoneId zone;
+    private final long jitterMillis;
+    private final long budgetMillis;
+
+    private TaskSchedule(long intervalMillis, long initialDelayMillis, CronExpression cron, ZoneId zone,
+                         long jitterMillis, long budgetMillis) {
+        this.intervalMillis = intervalMillis;
+        this.initialDelayMillis = initialDelayMillis;
+        this.cron = cron;
+        this.zone = zone;
+        this.jitterMillis = jitterMillis;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Reads the schedule of a task from its annotation.
+     *
+     * @param annotation The annotation of the task.
+     * @param taskName   The name of the task, used in error messages.
+     * @return The schedule of the task.
+     * @throws IllegalArgumentException If neither or both of the interval and cron expression are set, or one is invalid.
+     */
+    static TaskSchedule of(ScheduledTask annotation, String taskName) {
+        boolean hasCron = !annotation.cron().isBlank();
+        if (hasCron == annotation.intervalSeconds() > 0) {
+            throw new IllegalArgumentException("Scheduled task " + taskName
+                    + " must set exactly one of intervalSeconds and cron");
+        }
+        if (annotation.intervalSeconds() < 0 || annotation.initialDelaySeconds() < 0
+                || annotation.jitterSeconds() < 0 || annotation.timeBudgetSeconds() < 0) {
+            throw new IllegalArgumentException("Scheduled task " + taskName + " has a negative time setting");
+        }
+        CronExpression cron = hasCron ? CronExpression.parse(annotation.cron()) : null;
+        ZoneId zone = annotation.zone().isBlank() ? ZoneId.systemDefault() : ZoneId.of(annotation.zone());
+        return new TaskSchedule(annotation.intervalSeconds() * 1000L, annotation.initialDelaySeconds() * 1000L,
+                cron, zone, annotation.jitterSeconds() * 1000L, annotation.timeBudgetSeconds() * 1000L);
+    }
+
+    /**
+     * Returns when the first run is due.
+     *
+     * @param now The current time in epoch milliseconds.
+     * @return The due time in epoch milliseconds.
+     */
+    long firstDue(long now) {
+        return cron != null ? cronAfter(now) : now + initialDelayMillis;
+    }
+
+    /**
+     * Returns when the run after the given one is due. Runs that would already be in the past, for example
+     * after the process was suspended, are left out.
+     *
+     * @param due The due time of the current run in epoch milliseconds.
+     * @param now The current time in epoch milliseconds.
+     * @return The due time of the next run in epoch milliseconds.
+     */
+    long nextDue(long due, long now) {
+        if (cron != null) {
+            long next = cronAfter(due);
+            return next > now ? next : cronAfter(now);
+        }
+        return now < due + intervalMillis ? due + intervalMillis
+                : due + intervalMillis * ((now - due) / intervalMillis + 1);
+    }
+
+    /**
+     * Draws the random delay of a single run.
+     *
+     * @return The delay in milliseconds.
+     */
+    long drawJitter() {
+        return jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+    }
+
+    /**
+     * Returns the time budget of a run: the configured one or, by default, the time until the next run.
+     *
+     * @param now     The current time in epoch milliseconds.
+     * @param nextDue The due time of the next run in epoch milliseconds.
+     * @return The time budget of the run.
+     */
+    Duration budget(long now, long nextDue) {
+        return Duration.ofMillis(budgetMillis > 0 ? budgetMillis : Math.max(1, nextDue - now));
+    }
+
+    /**
+     * Returns the time budget of a run started outside the schedule: the configured one or the interval,
+     * or a minute for cron tasks, the shortest time between cron runs.
+     *
+     * @return The time budget of the run.
+     */
+    Duration defaultBudget() {
+        return Duration.ofMillis(budgetMillis > 0 ? budgetMillis : cron == null ? intervalMillis : 60_000);
+    }
+
+    private long cronAfter(long millis) {
+        return cron.next(Instant.ofEpochMilli(millis).atZone(zone)).toInstant().toEpochMilli();
+    }
+}
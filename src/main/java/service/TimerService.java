@@ -0,0 +1,271 @@
+package service;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel for large numbers of delayed actions, such as deleting a message after 30 seconds
+ * or sending a reminder in 10 minutes. Time is divided into ticks, and every timer is kept in the bucket of
+ * the wheel its deadline falls into. A single thread visits one bucket per tick and hands the timers that are
+ * due to an executor, so the actions never run on the timer thread. Actions run with the {@link LogContext} of
+ * the thread that scheduled them.
+ *
+ * <p>Scheduling and cancelling a timer take constant time and lock only its bucket, and a pending timer costs
+ * one small node in a doubly linked list, so millions of timers can be pending at once. In exchange, timers
+ * fire up to one tick late: the tick duration is the timer's resolution.</p>
+ */
+public class TimerService {
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final EventLogger eventLogger;
+    private final long startTime = System.nanoTime();
+    private final LongAdder pending = new LongAdder();
+    private final Thread worker;
+    private volatile long tick;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new TimerService instance and starts its thread.
+     *
+     * @param tickDuration The resolution of the timers.
+     * @param wheelSize    The number of buckets, rounded up to a power of two. Timers more than
+     *                     {@code tickDuration * wheelSize} ahead share buckets with nearer ones.
+     * @param executor     The executor running the actions of due timers.
+     * @param eventLogger  The EventLogger instance for logging failed actions.
+     */
+    public TimerService(Duration tickDuration, int wheelSize, Executor executor, EventLogger eventLogger) {
+        if (tickDuration.isNegative() || tickDuration.isZero() || wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        this.tickNanos = tickDuration.toNanos();
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.executor = executor;
+        this.eventLogger = eventLogger;
+        this.worker = new Thread(this::run, "jbotlib-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules an action to run once after the given delay.
+     *
+     * @param action The action to run.
+     * @param delay  The delay after which the action runs.
+     * @return The handle of the timer, which can be cancelled until it fires.
+     * @throws IllegalStateException If the service has been shut down.
+     */
+    public Timeout schedule(Runnable action, Duration delay) {
+        return schedule(action, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Schedules an action to run once after the given delay.
+     *
+     * @param action The action to run.
+     * @param delay  The delay after which the action runs.
+     * @param unit   The unit of the delay.
+     * @return The handle of the timer, which can be cancelled until it fires.
+     * @throws IllegalStateException If the service has been shut down.
+     */
+    public Timeout schedule(Runnable action, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("TimerService has been shut down");
+        }
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+        long due = (deadline + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(LogContext.wrap(action));
+        while (true) {
+            long target = Math.max(due, tick);
+            Bucket bucket = wheel[(int) (target & mask)];
+            synchronized (bucket) {
+                // The worker moves past a tick while holding its bucket, so this check cannot race with it.
+                if (tick <= target) {
+                    timeout.dueTick = target;
+                    bucket.add(timeout);
+                    pending.increment();
+                    return timeout;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of timers that have neither fired nor been cancelled.
+     *
+     * @return The number of pending timers.
+     */
+    public long pendingTimers() {
+        return pending.sum();
+    }
+
+    /**
+     * Stops the timer thread. Pending timers are dropped without running.
+     */
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long current = tick;
+            long wakeUp = startTime + (current + 1) * tickNanos;
+            long sleep;
+            while (running && (sleep = wakeUp - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+            if (!running) {
+                return;
+            }
+            Bucket bucket = wheel[(int) (current & mask)];
+            Timeout expired;
+            synchronized (bucket) {
+                expired = bucket.removeExpired(current);
+                tick = current + 1;
+            }
+            while (expired != null) {
+                Timeout next = expired.next;
+                expired.next = null;
+                pending.decrement();
+                fire(expired);
+                expired = next;
+            }
+        }
+    }
+
+    private void fire(Timeout timeout) {
+        Runnable action = timeout.action;
+        timeout.action = null;
+        try {
+            executor.execute(() -> {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    eventLogger.logError(e, "timer");
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            eventLogger.logWarning("Dropped a timer because its executor is shut down", "timer");
+        }
+    }
+
+    /**
+     * The handle of a scheduled action.
+     */
+    public final class Timeout {
+        private Runnable action;
+        private long dueTick;
+        private volatile Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+        private volatile boolean fired;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable action) {
+            this.action = action;
+        }
+
+        /**
+         * Cancels the timer, so its action does not run.
+         *
+         * @return {@code true} if the timer was pending, {@code false} if it already fired or was cancelled.
+         */
+        public boolean cancel() {
+            Bucket owner = bucket;
+            if (owner == null) {
+                return false;
+            }
+            synchronized (owner) {
+                if (bucket != owner) {
+                    return false;
+                }
+                owner.remove(this);
+                action = null;
+                cancelled = true;
+            }
+            pending.decrement();
+            return true;
+        }
+
+        /**
+         * Returns whether the timer fired and its action was handed to the executor.
+         *
+         * @return {@code true} if the timer fired.
+         */
+        public boolean isExpired() {
+            return fired;
+        }
+
+        /**
+         * Returns whether the timer was cancelled before it fired.
+         *
+         * @return {@code true} if the timer was cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * A doubly linked list of the timers due in the ticks that map to one slot of the wheel.
+     */
+    private static final class Bucket {
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Unlinks the timers due at or before the given tick and returns them as a singly linked list.
+         */
+        Timeout removeExpired(long tick) {
+            Timeout expired = null;
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.dueTick <= tick) {
+                    remove(timeout);
+                    timeout.fired = true;
+                    timeout.next = expired;
+                    expired = timeout;
+                }
+                timeout = next;
+            }
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package service;
+
+/**
+ * Fingerprints exceptions by their classes and stack frames, leaving messages out because they often carry
+ * varying details such as IDs. Shared by {@link ErrorRateLimiter} and {@link StackTraceRenderer}, so both
+ * recognize the same failure the same way.
+ */
+final class TraceFingerprint {
+    private static final long SEED = 1125899906842597L;
+
+    private TraceFingerprint() {
+    }
+
+    /**
+     * Computes a fingerprint of an exception and its causes.
+     *
+     * @param throwable The exception.
+     * @param maxCauses The maximum number of exceptions of the cause chain included, the given one counted.
+     * @param maxFrames The maximum number of top frames included per exception.
+     * @return The fingerprint.
+     */
+    static long of(Throwable throwable, int maxCauses, int maxFrames) {
+        long hash = SEED;
+        int depth = 0;
+        for (Throwable current = throwable; current != null && depth < maxCauses; current = current.getCause(), depth++) {
+            hash = 31 * hash + current.getClass().getName().hashCode();
+            StackTraceElement[] trace = current.getStackTrace();
+            for (int i = 0; i < Math.min(trace.length, maxFrames); i++) {
+                hash = 31 * hash + trace[i].hashCode();
+            }
+        }
+        return hash;
+    }
+}
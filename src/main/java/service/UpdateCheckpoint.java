@@ -0,0 +1,247 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the last fully processed update and saves it to a small file, so a restarted bot resumes
+ * after it instead of fetching and handling the same updates again.
+ * Updates from different chats finish out of order, so the checkpoint is the low watermark: the latest update
+ * ID such that every update dispatched before it has been processed.
+ *
+ * <p>The file is written at most once per flush interval and only when the watermark moved. Each write goes
+ * to a temporary file that is forced to disk and then atomically moved over the checkpoint, so a crash leaves
+ * either the previous or the new checkpoint, never a torn one.</p>
+ *
+ * <p>Updates in flight are tracked in a fixed ring of one bit per update ID, so beginning and completing an
+ * update costs constant time and allocates nothing. The ring spans {@value #TRACKED_UPDATES} IDs from the oldest
+ * update in flight; an update that is still running when the ring wraps around is given up on with a warning,
+ * so one stuck handler cannot hold the checkpoint back forever.</p>
+ *
+ * <p>A checkpoint older than a week is ignored, since Telegram picks a new random starting update ID after a
+ * week without updates.</p>
+ */
+@Slf4j
+public class UpdateCheckpoint {
+    private static final Duration MAX_AGE = Duration.ofDays(7);
+    private static final int TRACKED_UPDATES = 1 << 16;
+
+    private final Path file;
+    private final Path tempFile;
+    private final OptionalLong savedUpdateId;
+    private final long[] inFlight = new long[TRACKED_UPDATES / 64];
+    private final ScheduledExecutorService flusher;
+    private final Object writeLock = new Object();
+    private long latest;
+    private long oldest;
+    private long lastWritten;
+
+    /**
+     * Constructs a new UpdateCheckpoint instance, loads the saved checkpoint and starts flushing it periodically.
+     *
+     * @param file          The checkpoint file.
+     * @param flushInterval How often the checkpoint is saved if it changed.
+     */
+    public UpdateCheckpoint(Path file, Duration flushInterval) {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.savedUpdateId = load(file);
+        this.latest = savedUpdateId.orElse(-1);
+        this.oldest = latest + 1;
+        this.lastWritten = latest;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jbotlib-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, flushInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the ID of the last processed update saved by a previous run.
+     *
+     * @return The saved update ID, or an empty OptionalLong if there is no usable checkpoint.
+     */
+    public OptionalLong savedUpdateId() {
+        return savedUpdateId;
+    }
+
+    /**
+     * Records that an update was dispatched and is being processed.
+     *
+     * @param updateId The ID of the update.
+     */
+    public synchronized void begin(long updateId) {
+        if (updateId > latest) {
+            if (oldest > latest) {
+                // Nothing is in flight, so the watermark moves right up to this update.
+                oldest = updateId;
+            } else if (updateId - oldest >= TRACKED_UPDATES) {
+                long dropUpTo = updateId - TRACKED_UPDATES + 1;
+                log.warn("Giving up on updates {} to {} still in flight, the checkpoint moves past them",
+                        oldest, dropUpTo - 1);
+                clear(oldest, dropUpTo);
+                oldest = firstInFlight(dropUpTo, latest, updateId);
+            }
+            latest = updateId;
+        } else if (updateId < oldest) {
+            if (latest - updateId >= TRACKED_UPDATES) {
+                log.warn("Not tracking update {}, which is too far behind update {}", updateId, latest);
+                return;
+            }
+            oldest = updateId;
+        }
+        int bit = bit(updateId);
+        inFlight[bit >>> 6] |= 1L << (bit & 63);
+    }
+
+    /**
+     * Records that an update has been processed.
+     *
+     * @param updateId The ID of the update.
+     */
+    public synchronized void complete(long updateId) {
+        if (updateId < oldest || updateId > latest) {
+            return;
+        }
+        int bit = bit(updateId);
+        inFlight[bit >>> 6] &= ~(1L << (bit & 63));
+        if (updateId == oldest) {
+            oldest = firstInFlight(updateId + 1, latest, latest + 1);
+        }
+    }
+
+    /**
+     * Returns the ID of the latest update such that every update dispatched before it has been processed.
+     *
+     * @return The low watermark, or {@code -1} if no update has been processed yet.
+     */
+    public synchronized long processedUpTo() {
+        return oldest - 1;
+    }
+
+    /**
+     * Saves the checkpoint if it changed since it was last saved.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            long watermark = processedUpTo();
+            if (watermark < 0 || watermark == lastWritten) {
+                return;
+            }
+            try {
+                write(watermark);
+                lastWritten = watermark;
+            } catch (IOException e) {
+                log.error("Failed to save update checkpoint to {}: {}", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops the periodic flushing and saves the checkpoint a last time.
+     */
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Finds the first update in flight in a range of IDs, a whole word of the ring at a time.
+     *
+     * @param from The first ID of the range.
+     * @param to   The last ID of the range, less than {@value #TRACKED_UPDATES} after {@code from}.
+     * @param none The value returned if no update in the range is in flight.
+     * @return The ID of the first update in flight, or {@code none}.
+     */
+    private long firstInFlight(long from, long to, long none) {
+        long id = from;
+        while (id <= to) {
+            int bit = bit(id);
+            long word = inFlight[bit >>> 6] >>> (bit & 63);
+            if (word != 0) {
+                long found = id + Long.numberOfTrailingZeros(word);
+                return found <= to ? found : none;
+            }
+            id += 64 - (bit & 63);
+        }
+        return none;
+    }
+
+    /**
+     * Stops tracking the updates in a range of IDs.
+     *
+     * @param from The first ID of the range.
+     * @param to   The ID after the last one of the range.
+     */
+    private void clear(long from, long to) {
+        if (to - from >= TRACKED_UPDATES) {
+            Arrays.fill(inFlight, 0);
+            return;
+        }
+        for (long id = from; id < to; ) {
+            int bit = bit(id);
+            int count = (int) Math.min(64 - (bit & 63), to - id);
+            long mask = count == 64 ? -1L : ((1L << count) - 1) << (bit & 63);
+            inFlight[bit >>> 6] &= ~mask;
+            id += count;
+        }
+    }
+
+    private static int bit(long updateId) {
+        return (int) Math.floorMod(updateId, (long) TRACKED_UPDATES);
+    }
+
+    private void write(long watermark) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        byte[] content = (watermark + " " + System.currentTimeMillis() + "\n").getBytes(StandardCharsets.US_ASCII);
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(content));
+            channel.force(false);
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static OptionalLong load(Path file) {
+        if (!Files.exists(file)) {
+            return OptionalLong.empty();
+        }
+        try {
+            String[] parts = Files.readString(file, StandardCharsets.US_ASCII).trim().split(" ");
+            long updateId = Long.parseLong(parts[0]);
+            long savedAt = Long.parseLong(parts[1]);
+            if (System.currentTimeMillis() - savedAt > MAX_AGE.toMillis()) {
+                log.warn("Ignoring update checkpoint {} saved more than {} days ago", file, MAX_AGE.toDays());
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(updateId);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable update checkpoint {}: {}", file, e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+}
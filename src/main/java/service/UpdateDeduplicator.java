@@ -0,0 +1,138 @@
+package service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recognizes updates that were already delivered, by their {@code update_id}.
+ * Telegram assigns increasing update IDs, so the deduplicator keeps a fixed-size window of bits for the most
+ * recent IDs below the highest one seen: an ID inside the window is a duplicate if its bit is set. Checking
+ * an update costs constant time and the memory use is fixed at one bit per ID in the window.
+ *
+ * <p>An ID below the window is accepted and restarts the window at that ID, since Telegram picks a new random
+ * starting ID after a week without updates and a redelivery that old is not expected.</p>
+ */
+public class UpdateDeduplicator {
+    private final long[] words;
+    private final int window;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private long highest = Long.MIN_VALUE;
+
+    /**
+     * Constructs a new UpdateDeduplicator instance.
+     *
+     * @param window The number of recent update IDs remembered; rounded up to a multiple of 64.
+     */
+    public UpdateDeduplicator(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.words = new long[(window + 63) / 64];
+        this.window = words.length * 64;
+    }
+
+    /**
+     * Records the given update ID and returns whether it is seen for the first time.
+     *
+     * @param updateId The ID of the update.
+     * @return {@code true} if the update is new, {@code false} if it is a duplicate.
+     */
+    public boolean markSeen(long updateId) {
+        boolean isNew;
+        synchronized (this) {
+            if (highest == Long.MIN_VALUE || updateId <= highest - window) {
+                Arrays.fill(words, 0);
+                highest = updateId;
+                isNew = set(updateId);
+            } else if (updateId > highest) {
+                long gap = updateId - highest;
+                if (gap >= window) {
+                    Arrays.fill(words, 0);
+                } else {
+                    clear(bit(highest + 1), (int) gap);
+                }
+                highest = updateId;
+                isNew = set(updateId);
+            } else {
+                isNew = set(updateId);
+            }
+        }
+        (isNew ? accepted : duplicates).increment();
+        return isNew;
+    }
+
+    /**
+     * Treats every update ID up to the given one, within the window, as already seen, for example after
+     * restoring the last processed update from an {@link UpdateCheckpoint}. Has no effect once an update
+     * has been recorded.
+     *
+     * @param updateId The ID of the last processed update.
+     */
+    public synchronized void seedProcessedUpTo(long updateId) {
+        if (highest == Long.MIN_VALUE) {
+            Arrays.fill(words, -1L);
+            highest = updateId;
+        }
+    }
+
+    /**
+     * Returns the number of updates accepted as new.
+     *
+     * @return The number of accepted updates.
+     */
+    public long acceptedUpdates() {
+        return accepted.sum();
+    }
+
+    /**
+     * Returns the number of updates dropped as duplicates.
+     *
+     * @return The number of duplicates.
+     */
+    public long duplicatesDropped() {
+        return duplicates.sum();
+    }
+
+    private boolean set(long id) {
+        int bit = bit(id);
+        long mask = 1L << (bit & 63);
+        boolean seen = (words[bit >>> 6] & mask) != 0;
+        words[bit >>> 6] |= mask;
+        return !seen;
+    }
+
+    /**
+     * Clears a run of bits, wrapping around the end of the window, a whole word at a time where possible.
+     *
+     * @param from  The first bit to clear.
+     * @param count The number of bits to clear, less than the window.
+     */
+    private void clear(int from, int count) {
+        int end = from + count;
+        if (end > window) {
+            clearRange(from, window);
+            clearRange(0, end - window);
+        } else {
+            clearRange(from, end);
+        }
+    }
+
+    private void clearRange(int from, int to) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (first == last) {
+            words[first] &= ~(firstMask & lastMask);
+            return;
+        }
+        words[first] &= ~firstMask;
+        Arrays.fill(words, first + 1, last, 0);
+        words[last] &= ~lastMask;
+    }
+
+    private int bit(long id) {
+        return (int) Math.floorMod(id, (long) window);
+    }
+}
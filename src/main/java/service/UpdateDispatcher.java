@@ -0,0 +1,291 @@
+package service;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches incoming updates to an {@link AnnotationService} on a pool of worker threads.
+ * Updates are partitioned by chat: every chat is assigned to exactly one worker, so updates from
+ * different chats are handled concurrently while updates from the same chat are handled strictly
+ * in the order they were received.
+ *
+ * <p>Each worker owns a bounded queue. When a worker falls behind and its queue fills up,
+ * {@link #dispatch(Update)} blocks, applying backpressure to the poller instead of buffering
+ * updates without limit.</p>
+ *
+ * <p>With an {@link UpdateDeduplicator}, updates whose {@code update_id} was already dispatched, such as
+ * those redelivered after a failed {@code getUpdates} confirmation or a webhook retry, are dropped before
+ * they are queued. With an {@link UpdateCheckpoint}, every update is tracked from the moment it is queued until
+ * its handler returns, so the last fully processed update can be saved and resumed from after a restart.</p>
+ */
+public class UpdateDispatcher {
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final AnnotationService annotationService;
+    private final EventLogger eventLogger;
+    private final UpdateDeduplicator deduplicator;
+    private final UpdateCheckpoint checkpoint;
+    private final BlockingQueue<Update>[] queues;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new UpdateDispatcher instance and starts its workers.
+     *
+     * @param annotationService The AnnotationService that handles each update.
+     * @param eventLogger       The EventLogger instance for logging handler failures.
+     * @param parallelism       The number of worker threads.
+     * @param queueCapacity     The maximum number of pending updates per worker.
+     */
+    public UpdateDispatcher(AnnotationService annotationService, EventLogger eventLogger,
+                            int parallelism, int queueCapacity) {
+        this(annotationService, eventLogger, parallelism, queueCapacity, Thread::new);
+    }
+
+    /**
+     * Constructs a new UpdateDispatcher instance whose workers are created by the given thread factory.
+     *
+     * @param annotationService The AnnotationService that handles each update.
+     * @param eventLogger       The EventLogger instance for logging handler failures.
+     * @param parallelism       The number of worker threads.
+     * @param queueCapacity     The maximum number of pending updates per worker.
+     * @param threadFactory     The factory used to create the worker threads.
+     */
+    public UpdateDispatcher(AnnotationService annotationService, EventLogger eventLogger,
+                            int parallelism, int queueCapacity, ThreadFactory threadFactory) {
+        this(annotationService, eventLogger, parallelism, queueCapacity, threadFactory, null);
+    }
+
+    /**
+     * Constructs a new UpdateDispatcher instance that drops updates already dispatched.
+     *
+     * @param annotationService The AnnotationService that handles each update.
+     * @param eventLogger       The EventLogger instance for logging handler failures.
+     * @param parallelism       The number of worker threads.
+     * @param queueCapacity     The maximum number of pending updates per worker.
+     * @param threadFactory     The factory used to create the worker threads.
+     * @param deduplicator      The UpdateDeduplicator recognizing redelivered updates, or {@code null} to dispatch every update.
+     */
+    public UpdateDispatcher(AnnotationService annotationService, EventLogger eventLogger,
+                            int parallelism, int queueCapacity, ThreadFactory threadFactory,
+                            UpdateDeduplicator deduplicator) {
+        this(annotationService, eventLogger, parallelism, queueCapacity, threadFactory, deduplicator, null);
+    }
+
+    /**
+     * Constructs a new UpdateDispatcher instance that drops updates already dispatched and tracks
+     * the last fully processed update.
+     *
+     * @param annotationService The AnnotationService that handles each update.
+     * @param eventLogger       The EventLogger instance for logging handler failures.
+     * @param parallelism       The number of worker threads.
+     * @param queueCapacity     The maximum number of pending updates per worker.
+     * @param threadFactory     The factory used to create the worker threads.
+     * @param deduplicator      The UpdateDeduplicator recognizing redelivered updates, or {@code null} to dispatch every update.
+     * @param checkpoint        The UpdateCheckpoint tracking processed updates, or {@code null} to not track them.
+     */
+    @SuppressWarnings("unchecked")
+    public UpdateDispatcher(AnnotationService annotationService, EventLogger eventLogger,
+                            int parallelism, int queueCapacity, ThreadFactory threadFactory,
+                            UpdateDeduplicator deduplicator, UpdateCheckpoint checkpoint) {
+        if (parallelism < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Parallelism and queue capacity must be positive");
+        }
+        this.annotationService = annotationService;
+        this.eventLogger = eventLogger;
+        this.deduplicator = deduplicator;
+        this.checkpoint = checkpoint;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BlockingQueue<Update>[] queues = new BlockingQueue[parallelism];
+        this.queues = queues;
+        this.workers = new Thread[parallelism];
+
+        for (int i = 0; i < parallelism; i++) {
+            BlockingQueue<Update> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues[i] = queue;
+            workers[i] = threadFactory.newThread(() -> work(queue));
+            workers[i].setName("jbotlib-dispatch-" + i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues an update for processing on the worker that owns its chat.
+     * Blocks while that worker's queue is full. An update already dispatched is dropped.
+     *
+     * @param update The Telegram update to process.
+     */
+    public void dispatch(Update update) {
+        if (!running) {
+            throw new IllegalStateException("UpdateDispatcher has been shut down");
+        }
+        if (deduplicator != null && !deduplicator.markSeen(update.getUpdateId())) {
+            return;
+        }
+        BlockingQueue<Update> queue = queues[Math.floorMod(mix(chatKey(update)), queues.length)];
+        if (checkpoint != null) {
+            checkpoint.begin(update.getUpdateId());
+        }
+        try {
+            queue.put(update);
+        } catch (InterruptedException e) {
+            // The update stays in flight, so the checkpoint never moves past an update that was not handled.
+            Thread.currentThread().interrupt();
+            eventLogger.logWarning("Interrupted while queueing update " + update.getUpdateId(), "update_dispatch");
+        }
+    }
+
+    /**
+     * Stops accepting updates and waits for the workers to finish the updates already queued.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return {@code true} if all workers finished within the timeout, {@code false} otherwise.
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (Thread worker : workers) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    worker.join(remaining);
+                }
+                if (worker.isAlive()) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of updates waiting to be processed across all workers.
+     *
+     * @return The number of pending updates.
+     */
+    public int pendingUpdates() {
+        int pending = 0;
+        for (BlockingQueue<Update> queue : queues) {
+            pending += queue.size();
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the deduplicator recognizing redelivered updates.
+     *
+     * @return The UpdateDeduplicator, or {@code null} if every update is dispatched.
+     */
+    public UpdateDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * Returns the checkpoint tracking processed updates.
+     *
+     * @return The UpdateCheckpoint, or {@code null} if processed updates are not tracked.
+     */
+    public UpdateCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Returns the key an update is partitioned by: the chat it belongs to or, for updates
+     * without a chat, the user who caused it.
+     *
+     * @param update The Telegram update.
+     * @return The partition key of the update.
+     */
+    static long chatKey(Update update) {
+        Long chatId = chatId(update);
+        if (chatId != null) {
+            return chatId;
+        } else if (update.hasCallbackQuery()) {
+            return update.getCallbackQuery().getFrom().getId();
+        } else if (update.hasInlineQuery()) {
+            return update.getInlineQuery().getFrom().getId();
+        } else if (update.hasChosenInlineQuery()) {
+            return update.getChosenInlineQuery().getFrom().getId();
+        } else if (update.hasShippingQuery()) {
+            return update.getShippingQuery().getFrom().getId();
+        } else if (update.hasPreCheckoutQuery()) {
+            return update.getPreCheckoutQuery().getFrom().getId();
+        } else if (update.hasPollAnswer() && update.getPollAnswer().getUser() != null) {
+            return update.getPollAnswer().getUser().getId();
+        }
+        return update.getUpdateId();
+    }
+
+    /**
+     * Returns the chat an update belongs to.
+     *
+     * @param update The Telegram update.
+     * @return The ID of the chat, or {@code null} if the update has none, such as an inline query.
+     */
+    static Long chatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        } else if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        } else if (update.hasChannelPost()) {
+            return update.getChannelPost().getChatId();
+        } else if (update.hasEditedChannelPost()) {
+            return update.getEditedChannelPost().getChatId();
+        } else if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        } else if (update.hasMyChatMember()) {
+            return update.getMyChatMember().getChat().getId();
+        } else if (update.hasChatMember()) {
+            return update.getChatMember().getChat().getId();
+        } else if (update.hasChatJoinRequest()) {
+            return update.getChatJoinRequest().getChat().getId();
+        }
+        return null;
+    }
+
+    private static int mix(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private void work(BlockingQueue<Update> queue) {
+        while (running || !queue.isEmpty()) {
+            Update update;
+            try {
+                update = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (update == null) {
+                continue;
+            }
+            LogContext context = LogContext.current().put("updateId", update.getUpdateId());
+            Long chatId = chatId(update);
+            if (chatId != null) {
+                context.put("chatId", chatId);
+            }
+            try {
+                annotationService.processUpdate(update);
+            } catch (Exception e) {
+                eventLogger.logError(e, "update_dispatch");
+            } catch (Throwable e) {
+                // Handlers may throw errors such as AssertionError or StackOverflowError; a worker that died
+                // on one would leave its queue to fill up and block dispatch for good.
+                eventLogger.logError(e, "Handler failed with an error on update {}", update.getUpdateId());
+            } finally {
+                context.clear();
+                if (checkpoint != null) {
+                    checkpoint.complete(update.getUpdateId());
+                }
+            }
+        }
+    }
+}
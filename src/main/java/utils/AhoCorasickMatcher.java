@@ -0,0 +1,144 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A case-insensitive multi-pattern matcher based on the Aho-Corasick automaton.
+ * All patterns are compiled once into a trie with failure links, so a text can be checked
+ * against every pattern in a single pass without allocating lowercase copies of it.
+ *
+ * <p>Patterns are ranked by the order in which they were given: when several patterns occur in
+ * the same text, {@link #find(CharSequence)} returns the value of the highest-ranked one,
+ * regardless of where in the text it occurs. Instances are immutable and thread-safe.</p>
+ *
+ * @param <T> The type of value associated with each pattern.
+ */
+public final class AhoCorasickMatcher<T> {
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final char[][] keys;
+    private final int[][] next;
+    private final int[] fail;
+    private final int[] best;
+    private final List<T> values;
+
+    private AhoCorasickMatcher(char[][] keys, int[][] next, int[] fail, int[] best, List<T> values) {
+        this.keys = keys;
+        this.next = next;
+        this.fail = fail;
+        this.best = best;
+        this.values = values;
+    }
+
+    /**
+     * Builds a matcher for the given patterns.
+     *
+     * @param patterns The patterns to match, highest priority first.
+     * @param values   The value associated with each pattern, in the same order.
+     * @param <T>      The type of value associated with each pattern.
+     * @return A matcher for the given patterns.
+     */
+    public static <T> AhoCorasickMatcher<T> build(List<String> patterns, List<T> values) {
+        if (patterns.size() != values.size()) {
+            throw new IllegalArgumentException("Every pattern needs exactly one value");
+        }
+
+        List<char[]> nodeKeys = new ArrayList<>();
+        List<int[]> nodeNext = new ArrayList<>();
+        List<Integer> nodeBest = new ArrayList<>();
+        nodeKeys.add(new char[0]);
+        nodeNext.add(new int[0]);
+        nodeBest.add(NONE);
+
+        for (int rank = 0; rank < patterns.size(); rank++) {
+            String pattern = patterns.get(rank);
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                int child = TrieNodes.lookup(nodeKeys.get(node), nodeNext.get(node), c);
+                if (child < 0) {
+                    child = nodeKeys.size();
+                    nodeKeys.add(new char[0]);
+                    nodeNext.add(new int[0]);
+                    nodeBest.add(NONE);
+                    TrieNodes.insert(nodeKeys, nodeNext, node, c, child);
+                }
+                node = child;
+            }
+            nodeBest.set(node, Math.min(nodeBest.get(node), rank));
+        }
+
+        int size = nodeKeys.size();
+        char[][] keys = nodeKeys.toArray(new char[0][]);
+        int[][] next = nodeNext.toArray(new int[0][]);
+        int[] fail = new int[size];
+        int[] best = new int[size];
+        for (int i = 0; i < size; i++) {
+            best[i] = nodeBest.get(i);
+        }
+
+        // Breadth-first, so every node's failure target is final before its children are visited.
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : next[0]) {
+            fail[child] = 0;
+            best[child] = Math.min(best[child], best[0]);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < keys[node].length; i++) {
+                char c = keys[node][i];
+                int child = next[node][i];
+                int f = fail[node];
+                int target = TrieNodes.lookup(keys[f], next[f], c);
+                while (target < 0 && f != 0) {
+                    f = fail[f];
+                    target = TrieNodes.lookup(keys[f], next[f], c);
+                }
+                fail[child] = target < 0 ? 0 : target;
+                best[child] = Math.min(best[child], best[fail[child]]);
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasickMatcher<>(keys, next, fail, best, List.copyOf(values));
+    }
+
+    /**
+     * Finds the highest-ranked pattern that occurs anywhere in the given text, ignoring case.
+     *
+     * @param text The text to search.
+     * @return The value of the highest-ranked matching pattern, or {@code null} if none matches.
+     */
+    public T find(CharSequence text) {
+        int state = 0;
+        int result = best[0];
+        for (int i = 0; i < text.length() && result != 0; i++) {
+            char c = fold(text.charAt(i));
+            int target = TrieNodes.lookup(keys[state], next[state], c);
+            while (target < 0 && state != 0) {
+                state = fail[state];
+                target = TrieNodes.lookup(keys[state], next[state], c);
+            }
+            state = target < 0 ? 0 : target;
+            result = Math.min(result, best[state]);
+        }
+        return result == NONE ? null : values.get(result);
+    }
+
+    /**
+     * Returns the number of patterns this matcher was built from.
+     *
+     * @return The number of patterns.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,169 @@
+package utils;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A Unix cron expression with the five fields minute, hour, day of month, month and day of week.
+ * Each field accepts {@code *}, single values, ranges ({@code 1-5}), lists ({@code 1,15}) and steps
+ * ({@code *}{@code /15}, {@code 8-18/2}). Months and days of week may also be given by their English
+ * three-letter names, and day of week {@code 0} and {@code 7} are both Sunday. The macros {@code @hourly},
+ * {@code @daily}, {@code @weekly}, {@code @monthly} and {@code @yearly} are supported as well.
+ *
+ * <p>As in cron, when both the day of month and the day of week are restricted, a day matches if either
+ * of them does. Each field is stored as a bit mask, so checking a time costs a few bit tests. Instances are
+ * immutable and thread-safe.</p>
+ */
+public final class CronExpression {
+    private static final List<String> MONTHS = List.of(
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC");
+    private static final List<String> DAYS = List.of("SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT");
+    private static final int MAX_YEARS = 5;
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59, null, 0);
+        this.hours = parseField(fields[1], 0, 23, null, 0);
+        this.daysOfMonth = parseField(fields[2], 1, 31, null, 0);
+        this.months = parseField(fields[3], 1, 12, MONTHS, 1);
+        long days = parseField(fields[4], 0, 7, DAYS, 0);
+        this.daysOfWeek = (days & 1L << 7) != 0 ? days | 1L : days;
+        this.anyDayOfMonth = fields[2].startsWith("*");
+        this.anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    /**
+     * Parses a cron expression.
+     *
+     * @param expression The expression, such as {@code "0 9 * * MON-FRI"}.
+     * @return The parsed expression.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    public static CronExpression parse(String expression) {
+        String trimmed = expression.trim();
+        String macro = switch (trimmed.toLowerCase(Locale.ROOT)) {
+            case "@hourly" -> "0 * * * *";
+            case "@daily", "@midnight" -> "0 0 * * *";
+            case "@weekly" -> "0 0 * * 0";
+            case "@monthly" -> "0 0 1 * *";
+            case "@yearly", "@annually" -> "0 0 1 1 *";
+            default -> trimmed;
+        };
+        String[] fields = macro.split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression must have 5 fields: " + expression);
+        }
+        return new CronExpression(trimmed, fields);
+    }
+
+    /**
+     * Returns the first time matching the expression strictly after the given time, in the time's zone.
+     * Times that do not exist on a day because of a daylight saving transition are skipped on that day.
+     * Times that occur twice because the clocks fall back only match their first occurrence: a time is never
+     * returned unless its local date and time is after that of the given time, so a task that ran at
+     * {@code 01:30} before the clocks went back from {@code 02:00} to {@code 01:00} does not run again at the
+     * second {@code 01:30}, and a task running every minute skips the repeated hour.
+     *
+     * @param after The time to start searching from.
+     * @return The next matching time.
+     * @throws IllegalStateException If no time matches within five years, as for {@code "0 0 30 2 *"}.
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = after.plusYears(MAX_YEARS);
+        LocalDateTime afterLocal = after.toLocalDateTime();
+        while (time.isBefore(limit)) {
+            if (!matches(months, time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!matches(hours, time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!matches(minutes, time.getMinute()) || !time.toLocalDateTime().isAfter(afterLocal)) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalStateException("Cron expression never matches: " + expression);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        boolean dayOfMonth = matches(daysOfMonth, time.getDayOfMonth());
+        boolean dayOfWeek = matches(daysOfWeek, time.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static boolean matches(long mask, int value) {
+        return (mask & 1L << value) != 0;
+    }
+
+    private static long parseField(String field, int min, int max, List<String> names, int firstName) {
+        long mask = 0;
+        for (String part : field.split(",")) {
+            int slash = part.indexOf('/');
+            String range = slash >= 0 ? part.substring(0, slash) : part;
+            int step = slash >= 0 ? parseNumber(part.substring(slash + 1), field) : 1;
+            if (step < 1) {
+                throw new IllegalArgumentException("Invalid step in cron field: " + field);
+            }
+
+            int from;
+            int to;
+            if (range.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = range.indexOf('-');
+                from = parseValue(dash >= 0 ? range.substring(0, dash) : range, names, firstName, field);
+                to = dash >= 0 ? parseValue(range.substring(dash + 1), names, firstName, field)
+                        : slash >= 0 ? max : from;
+            }
+            if (from < min || to > max || from > to) {
+                throw new IllegalArgumentException("Value out of range in cron field: " + field);
+            }
+            for (int value = from; value <= to; value += step) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseValue(String value, List<String> names, int firstName, String field) {
+        if (names != null) {
+            int index = names.indexOf(value.toUpperCase(Locale.ROOT));
+            if (index >= 0) {
+                return index + firstName;
+            }
+        }
+        return parseNumber(value, field);
+    }
+
+    private static int parseNumber(String value, String field) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value in cron field: " + field, e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A case-sensitive trie mapping string prefixes to values. All prefixes are compiled once into arrays of
+ * sorted child keys, so finding the longest prefix of a text costs one binary search per character of
+ * that prefix, no matter how many prefixes there are, and allocates nothing.
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ *
+ * @param <T> The type of value associated with each prefix.
+ */
+public final class PrefixTrie<T> {
+    private static final int NONE = -1;
+
+    private final char[][] keys;
+    private final int[][] next;
+    private final int[] value;
+    private final List<T> values;
+
+    private PrefixTrie(char[][] keys, int[][] next, int[] value, List<T> values) {
+        this.keys = keys;
+        this.next = next;
+        this.value = value;
+        this.values = values;
+    }
+
+    /**
+     * Builds a trie for the given prefixes.
+     *
+     * @param prefixes The prefixes to match. An empty prefix matches every text.
+     * @param values   The value associated with each prefix, in the same order.
+     * @param <T>      The type of value associated with each prefix.
+     * @return A trie for the given prefixes.
+     * @throws IllegalArgumentException If the lists differ in size or a prefix is given twice.
+     */
+    public static <T> PrefixTrie<T> build(List<String> prefixes, List<T> values) {
+        if (prefixes.size() != values.size()) {
+            throw new IllegalArgumentException("Every prefix needs exactly one value");
+        }
+
+        List<char[]> nodeKeys = new ArrayList<>();
+        List<int[]> nodeNext = new ArrayList<>();
+        List<Integer> nodeValue = new ArrayList<>();
+        nodeKeys.add(new char[0]);
+        nodeNext.add(new int[0]);
+        nodeValue.add(NONE);
+
+        for (int index = 0; index < prefixes.size(); index++) {
+            String prefix = prefixes.get(index);
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                char c = prefix.charAt(i);
+                int child = TrieNodes.lookup(nodeKeys.get(node), nodeNext.get(node), c);
+                if (child < 0) {
+                    child = nodeKeys.size();
+                    nodeKeys.add(new char[0]);
+                    nodeNext.add(new int[0]);
+                    nodeValue.add(NONE);
+                    TrieNodes.insert(nodeKeys, nodeNext, node, c, child);
+                }
+                node = child;
+            }
+            if (nodeValue.get(node) != NONE) {
+                throw new IllegalArgumentException("Duplicate prefix: " + prefix);
+            }
+            nodeValue.set(node, index);
+        }
+
+        int[] value = new int[nodeValue.size()];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = nodeValue.get(i);
+        }
+        return new PrefixTrie<>(nodeKeys.toArray(new char[0][]), nodeNext.toArray(new int[0][]), value,
+                List.copyOf(values));
+    }
+
+    /**
+     * Finds the longest prefix of the given text.
+     *
+     * @param text The text to look up.
+     * @return The value of the longest prefix the text starts with, or {@code null} if it starts with none.
+     */
+    public T findLongestPrefix(CharSequence text) {
+        int node = 0;
+        int result = value[0];
+        for (int i = 0; i < text.length(); i++) {
+            node = TrieNodes.lookup(keys[node], next[node], text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            if (value[node] != NONE) {
+                result = value[node];
+            }
+        }
+        return result == NONE ? null : values.get(result);
+    }
+
+    /**
+     * Returns the number of prefixes this trie was built from.
+     *
+     * @return The number of prefixes.
+     */
+    public int size() {
+        return values.size();
+    }
+}
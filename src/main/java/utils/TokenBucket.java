@@ -0,0 +1,110 @@
+package utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket rate limiter working on {@link System#nanoTime()} timestamps.
+ * The bucket holds at most {@code capacity} tokens and regains them at a fixed rate; every permitted
+ * action consumes one token. A bucket can additionally be blocked until a given time, which is how
+ * server-imposed back-off (such as Telegram's {@code retry_after}) is honored.
+ *
+ * <p>This class is not thread-safe; callers must confine each bucket to one thread or guard it.</p>
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double nanosPerToken;
+    private double tokens;
+    private long lastRefill;
+    private long blockedUntil;
+
+    /**
+     * Constructs a new, full TokenBucket.
+     *
+     * @param capacity The maximum number of tokens, i.e. the largest permitted burst.
+     * @param permits  The number of tokens regained per period.
+     * @param period   The length of the period.
+     * @param unit     The unit of the period.
+     * @param now      The current {@link System#nanoTime()} timestamp.
+     */
+    public TokenBucket(double capacity, double permits, long period, TimeUnit unit, long now) {
+        if (capacity < 1 || permits <= 0 || period <= 0) {
+            throw new IllegalArgumentException("Capacity must be at least 1 and the rate must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = unit.toNanos(period) / permits;
+        this.tokens = capacity;
+        this.lastRefill = now;
+        this.blockedUntil = now;
+    }
+
+    /**
+     * Returns how long to wait until a token is available.
+     *
+     * @param now The current {@link System#nanoTime()} timestamp.
+     * @return {@code 0} if a token is available now, otherwise the wait in nanoseconds.
+     */
+    public long nanosUntilAvailable(long now) {
+        refill(now);
+        long blocked = blockedUntil - now;
+        long refilling = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+        return Math.max(0, Math.max(blocked, refilling));
+    }
+
+    /**
+     * Returns how long the bucket stays blocked, ignoring its tokens.
+     *
+     * @param now The current {@link System#nanoTime()} timestamp.
+     * @return {@code 0} if the bucket is not blocked, otherwise the remaining block in nanoseconds.
+     */
+    public long nanosUntilUnblocked(long now) {
+        return Math.max(0, blockedUntil - now);
+    }
+
+    /**
+     * Consumes one token. Callers should first check {@link #nanosUntilAvailable(long)}.
+     *
+     * @param now The current {@link System#nanoTime()} timestamp.
+     */
+    public void consume(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    /**
+     * Blocks the bucket until the given time. When the block ends a single token is available,
+     * so one action may proceed immediately but no burst follows.
+     *
+     * @param until The {@link System#nanoTime()} timestamp until which no token is handed out.
+     * @param now   The current {@link System#nanoTime()} timestamp.
+     */
+    public void blockUntil(long until, long now) {
+        refill(now);
+        if (until - blockedUntil > 0) {
+            blockedUntil = until;
+        }
+        tokens = 1;
+    }
+
+    /**
+     * Returns whether the bucket is full and unblocked, meaning it carries no state worth keeping.
+     *
+     * @param now The current {@link System#nanoTime()} timestamp.
+     * @return {@code true} if the bucket is idle.
+     */
+    public boolean isIdle(long now) {
+        refill(now);
+        return tokens >= capacity && blockedUntil - now <= 0;
+    }
+
+    private void refill(long now) {
+        // No tokens are regained while the bucket is blocked.
+        long from = lastRefill - blockedUntil < 0 ? blockedUntil : lastRefill;
+        long elapsed = now - from;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+        }
+        if (now - lastRefill > 0) {
+            lastRefill = now;
+        }
+    }
+}
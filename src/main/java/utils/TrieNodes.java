@@ -0,0 +1,54 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Child arrays of the tries compiled by {@link AhoCorasickMatcher} and {@link PrefixTrie}. Each node keeps its
+ * children as a sorted array of characters and a parallel array of child node indexes, so a child is found
+ * with one binary search.
+ */
+final class TrieNodes {
+    private TrieNodes() {
+    }
+
+    /**
+     * Finds the child of a node reached by a character.
+     *
+     * @param keys The node's sorted child characters.
+     * @param next The node's child indexes, parallel to {@code keys}.
+     * @param c    The character to follow.
+     * @return The index of the child, or {@code -1} if the node has no child for the character.
+     */
+    static int lookup(char[] keys, int[] next, char c) {
+        int index = Arrays.binarySearch(keys, c);
+        return index < 0 ? -1 : next[index];
+    }
+
+    /**
+     * Adds a child to a node under construction, keeping its child characters sorted.
+     *
+     * @param nodeKeys The child characters of every node.
+     * @param nodeNext The child indexes of every node.
+     * @param node     The index of the node to add the child to; it must not have a child for {@code c} yet.
+     * @param c        The character leading to the child.
+     * @param child    The index of the child.
+     */
+    static void insert(List<char[]> nodeKeys, List<int[]> nodeNext, int node, char c, int child) {
+        char[] keys = nodeKeys.get(node);
+        int[] next = nodeNext.get(node);
+        int at = -(Arrays.binarySearch(keys, c) + 1);
+
+        char[] newKeys = new char[keys.length + 1];
+        int[] newNext = new int[next.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, at);
+        System.arraycopy(next, 0, newNext, 0, at);
+        newKeys[at] = c;
+        newNext[at] = child;
+        System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+        System.arraycopy(next, at, newNext, at + 1, next.length - at);
+
+        nodeKeys.set(node, newKeys);
+        nodeNext.set(node, newNext);
+    }
+}
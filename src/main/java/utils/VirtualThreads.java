@@ -0,0 +1,44 @@
+package utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Utility class for creating virtual threads.
+ * Virtual threads require Java 21; this is the implementation used on older runtimes,
+ * where virtual threads are reported as unsupported. The jar built with the {@code jdk21}
+ * profile is multi-release and replaces this class with a working implementation on Java 21+.
+ */
+public class VirtualThreads {
+
+    /**
+     * Returns whether virtual threads are available on the running JVM.
+     *
+     * @return {@code true} if virtual threads can be created, {@code false} otherwise.
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Returns a thread factory creating unstarted virtual threads with the given name prefix.
+     *
+     * @param prefix The prefix of the thread names.
+     * @return A virtual thread factory.
+     * @throws UnsupportedOperationException If virtual threads are not available on the running JVM.
+     */
+    public static ThreadFactory factory(String prefix) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task.
+     *
+     * @param prefix The prefix of the thread names.
+     * @return A virtual-thread-per-task executor.
+     * @throws UnsupportedOperationException If virtual threads are not available on the running JVM.
+     */
+    public static ExecutorService newPerTaskExecutor(String prefix) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+}
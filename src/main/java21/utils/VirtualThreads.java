@@ -0,0 +1,42 @@
+package utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Utility class for creating virtual threads.
+ * This is the Java 21 implementation, packaged under {@code META-INF/versions/21} of the
+ * multi-release jar built with the {@code jdk21} profile.
+ */
+public class VirtualThreads {
+
+    /**
+     * Returns whether virtual threads are available on the running JVM.
+     *
+     * @return {@code true} if virtual threads can be created, {@code false} otherwise.
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Returns a thread factory creating unstarted virtual threads with the given name prefix.
+     *
+     * @param prefix The prefix of the thread names.
+     * @return A virtual thread factory.
+     */
+    public static ThreadFactory factory(String prefix) {
+        return Thread.ofVirtual().name(prefix, 0).factory();
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task.
+     *
+     * @param prefix The prefix of the thread names.
+     * @return A virtual-thread-per-task executor.
+     */
+    public static ExecutorService newPerTaskExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(factory(prefix));
+    }
+}
@@ -0,0 +1,130 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActiveChatRegistryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsEveryOtherChatThroughRemovals() {
+        // Dense IDs fill long probe runs, so every removal shifts the entries after it back.
+        Random random = new Random(3);
+        ActiveChatRegistry registry = new ActiveChatRegistry(1 << 20, null);
+        Set<Long> model = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            long chatId = random.nextInt(4_000) - 2_000;
+            if (chatId == 0) {
+                continue;
+            }
+            if (random.nextInt(3) == 0) {
+                assertEquals(model.remove(chatId), registry.remove(chatId), "remove " + chatId);
+            } else {
+                registry.touch(chatId);
+                model.add(chatId);
+            }
+            if (i % 10_000 == 0) {
+                assertContainsExactly(registry, model);
+            }
+        }
+        assertContainsExactly(registry, model);
+        assertEquals(model.size(), registry.size());
+    }
+
+    @Test
+    void ignoresChatIdZero() {
+        ActiveChatRegistry registry = new ActiveChatRegistry(10, null);
+        registry.touch(0);
+
+        assertEquals(0, registry.size());
+        assertFalse(registry.contains(0));
+        assertFalse(registry.remove(0));
+    }
+
+    @Test
+    void evictsWithinSizeBound() {
+        ActiveChatRegistry registry = new ActiveChatRegistry(160, null);
+        for (long chatId = 1; chatId <= 10_000; chatId++) {
+            registry.touch(chatId);
+        }
+
+        assertTrue(registry.size() <= 160, "size " + registry.size());
+        assertTrue(registry.contains(10_000));
+        assertEquals(registry.size(), registry.snapshot().length);
+    }
+
+    @Test
+    void expiresChatsNotSeenWithinTtl() throws InterruptedException {
+        ActiveChatRegistry registry = new ActiveChatRegistry(1_000, Duration.ofMillis(100));
+        for (long chatId = 1; chatId <= 100; chatId++) {
+            registry.touch(chatId);
+        }
+        Thread.sleep(150);
+        for (long chatId = 101; chatId <= 110; chatId++) {
+            registry.touch(chatId);
+        }
+
+        assertFalse(registry.contains(1));
+        assertTrue(registry.contains(101));
+        assertEquals(110, registry.size());
+        assertEquals(100, registry.expire());
+        assertEquals(10, registry.size());
+        assertEquals(LongStream.rangeClosed(101, 110).boxed().collect(Collectors.toSet()), ids(registry));
+    }
+
+    @Test
+    void touchingRenewsChat() throws InterruptedException {
+        ActiveChatRegistry registry = new ActiveChatRegistry(1_000, Duration.ofMillis(100));
+        registry.touch(1);
+        registry.touch(2);
+        Thread.sleep(60);
+        registry.touch(1);
+        Thread.sleep(60);
+
+        assertTrue(registry.contains(1));
+        assertFalse(registry.contains(2));
+    }
+
+    @Test
+    void restoresSnapshotWithoutExpiredChats() throws InterruptedException {
+        Path file = directory.resolve("chats.bin");
+        ActiveChatRegistry registry = new ActiveChatRegistry(1_000, Duration.ofMillis(200), file, Duration.ofHours(1));
+        registry.touch(-100);
+        registry.touch(7);
+        registry.close();
+        Thread.sleep(250);
+        registry = new ActiveChatRegistry(1_000, Duration.ofMillis(200), file, Duration.ofHours(1));
+        assertEquals(0, registry.size());
+        registry.touch(8);
+        registry.close();
+
+        registry = new ActiveChatRegistry(1_000, Duration.ofMinutes(1), file, Duration.ofHours(1));
+        assertEquals(Set.of(8L), ids(registry));
+        registry.close();
+    }
+
+    private static void assertContainsExactly(ActiveChatRegistry registry, Set<Long> expected) {
+        for (long chatId = -2_000; chatId < 2_000; chatId++) {
+            assertEquals(expected.contains(chatId), registry.contains(chatId), "chat " + chatId);
+        }
+        assertEquals(expected, ids(registry));
+    }
+
+    private static Set<Long> ids(ActiveChatRegistry registry) {
+        return Arrays.stream(registry.snapshot()).boxed().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,76 @@
+package service;
+
+import annotations.BotCommand;
+import annotations.CallbackHandler;
+import annotations.ScheduledTask;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnnotationServiceTest {
+
+    @Test
+    void scheduledTasksOnlyStillReceiveMessages() {
+        assertEquals(List.of("message"), handledUpdateTypes(new ScheduledOnlyBot(), null));
+    }
+
+    @Test
+    void callbacksAndScheduledTasksReceiveMessages() {
+        assertEquals(List.of("message", "callback_query"), handledUpdateTypes(new CallbackBot(), null));
+    }
+
+    @Test
+    void memberCacheAddsMemberUpdates() {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 10);
+        assertEquals(List.of("message", "my_chat_member", "chat_member"),
+                handledUpdateTypes(new CommandBot(), cache));
+    }
+
+    @Test
+    void handlerlessBotReceivesMessages() {
+        assertEquals(List.of("message"), handledUpdateTypes(new TestBot(), null));
+    }
+
+    private static List<String> handledUpdateTypes(TestBot bot, ChatMemberCache cache) {
+        AnnotationService service = new AnnotationService(bot, new MessageService(bot), new KeyboardBuilder(bot),
+                new ChatService(bot, cache), new EventLogger(), null);
+        try {
+            return service.handledUpdateTypes();
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    static class TestBot extends DefaultAbsSender {
+        TestBot() {
+            super(new DefaultBotOptions(), "0:test");
+        }
+    }
+
+    static class ScheduledOnlyBot extends TestBot {
+        @ScheduledTask(intervalSeconds = 3600, initialDelaySeconds = 3600)
+        void digest(Long chatId) {
+        }
+    }
+
+    static class CallbackBot extends TestBot {
+        @CallbackHandler("page:")
+        void page(Long chatId, Long userId, Integer page) {
+        }
+
+        @ScheduledTask(intervalSeconds = 3600, initialDelaySeconds = 3600)
+        void digest(Long chatId) {
+        }
+    }
+
+    static class CommandBot extends TestBot {
+        @BotCommand("/start")
+        void start(Long chatId, Long userId) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncFileAppenderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesAfterFileBecomesWritable() throws IOException, InterruptedException {
+        Path file = directory.resolve("bot.log");
+        // A directory in the file's place makes every open fail until it is removed.
+        Files.createDirectory(file);
+        AsyncFileAppender.Options options = new AsyncFileAppender.Options();
+        options.setRollDaily(false);
+        options.setMaxFileBytes(0);
+        AsyncFileAppender appender = new AsyncFileAppender(file, options);
+        for (int i = 0; i < 5; i++) {
+            appender.append("lost " + i + System.lineSeparator());
+        }
+        Thread.sleep(150);
+        Files.delete(file);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Files.isRegularFile(file) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        appender.append("kept" + System.lineSeparator());
+        appender.close();
+
+        assertEquals(5, appender.droppedLines());
+        assertEquals(List.of("kept", "[appender] 5 log lines dropped"), Files.readAllLines(file));
+    }
+}
@@ -0,0 +1,110 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberAdministrator;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberLeft;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberMember;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ChatMemberCacheTest {
+    private static final String CHAT = "-100123";
+    private static final long USER = 42;
+
+    private final ChatMember admin = new ChatMemberAdministrator();
+    private final ChatMember member = new ChatMemberMember(new User());
+    private final ChatMember left = new ChatMemberLeft(new User());
+
+    @Test
+    void cachesLoadedMember() {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertSame(admin, cache.get(CHAT, USER, () -> {
+            loads.incrementAndGet();
+            return admin;
+        }));
+        assertSame(admin, cache.get(CHAT, USER, () -> {
+            loads.incrementAndGet();
+            return member;
+        }));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void loadDoesNotOverwriteUpdateReceivedDuringIt() {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 10);
+
+        // The user is demoted while the lookup that still sees them as admin is in flight.
+        ChatMember loaded = cache.get(CHAT, USER, () -> {
+            cache.put(CHAT, USER, member);
+            return admin;
+        });
+
+        assertSame(admin, loaded);
+        assertSame(member, cache.get(CHAT, USER, () -> admin));
+    }
+
+    @Test
+    void loadAfterExpiryDoesNotOverwriteUpdateReceivedDuringIt() throws InterruptedException {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMillis(1), Duration.ofMinutes(1), 10);
+        cache.put(CHAT, USER, admin);
+        Thread.sleep(5);
+
+        // The user leaves while the lookup replacing the expired entry is in flight.
+        cache.get(CHAT, USER, () -> {
+            cache.put(CHAT, USER, left);
+            return admin;
+        });
+
+        assertSame(left, cache.get(CHAT, USER, () -> admin));
+    }
+
+    @Test
+    void updateNotCachedUnderItsTtlRemovesOlderStatus() {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMinutes(1), Duration.ZERO, 10);
+        cache.put(CHAT, USER, admin);
+
+        cache.put(CHAT, USER, left);
+
+        assertEquals(0, cache.stats().size());
+        assertSame(member, cache.get(CHAT, USER, () -> member));
+    }
+
+    @Test
+    void evictsOldestEntriesBeyondMaxSize() {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 3);
+        for (long user = 1; user <= 5; user++) {
+            cache.put(CHAT, user, member);
+        }
+
+        assertEquals(3, cache.stats().size());
+        assertEquals(2, cache.stats().evictions());
+        assertSame(admin, cache.get(CHAT, 1, () -> admin));
+        assertSame(member, cache.get(CHAT, 5, () -> admin));
+    }
+
+    @Test
+    void clearResetsEvictionOrder() {
+        ChatMemberCache cache = new ChatMemberCache(Duration.ofMinutes(1), Duration.ofMinutes(1), 2);
+        cache.put(CHAT, 1, member);
+        cache.put(CHAT, 2, member);
+        cache.clear();
+
+        cache.put(CHAT, 3, member);
+        cache.put(CHAT, 4, member);
+        cache.put(CHAT, 5, member);
+
+        assertEquals(2, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+        assertSame(admin, cache.get(CHAT, 3, () -> admin));
+    }
+}
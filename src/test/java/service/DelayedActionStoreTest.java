@@ -0,0 +1,243 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DelayedActionStoreTest {
+    private static final Duration SOON = Duration.ofMillis(100);
+    private static final Duration NO_SYNC = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private TimerService timers;
+    private TimerService runningTimers;
+
+    /**
+     * Actions are scheduled on timers whose executor drops them, so they stay pending as if the bot stopped
+     * before they were due, and are run by {@link #reopen(int)} on timers that do run them.
+     */
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("delayed-actions.log");
+        timers = new TimerService(Duration.ofMillis(10), 64, action -> {
+        }, new EventLogger());
+        runningTimers = new TimerService(Duration.ofMillis(10), 64, Runnable::run, new EventLogger());
+    }
+
+    @AfterEach
+    void tearDown() {
+        timers.shutdown();
+        runningTimers.shutdown();
+    }
+
+    @Test
+    void restoresPendingActions() throws InterruptedException {
+        DelayedActionStore store = new DelayedActionStore(timers, file, NO_SYNC);
+        store.schedule(DelayedActionStore.Kind.DELETE_MESSAGE, 10, 100, null, SOON);
+        long cancelled = store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 11, 0, "gone", SOON).getId();
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 12, 0, "héllo", SOON);
+        store.schedule(DelayedActionStore.Kind.UNRESTRICT_MEMBER, 0, 42, "@group", SOON);
+        store.cancel(cancelled);
+        store.close();
+
+        Map<Long, DelayedActionStore.Action> restored = reopen(3);
+        assertEquals(List.of(1L, 3L, 4L), restored.keySet().stream().sorted().toList());
+        assertAction(restored.get(1L), DelayedActionStore.Kind.DELETE_MESSAGE, 10, 100, null);
+        assertAction(restored.get(3L), DelayedActionStore.Kind.SEND_MESSAGE, 12, 0, "héllo");
+        assertAction(restored.get(4L), DelayedActionStore.Kind.UNRESTRICT_MEMBER, 0, 42, "@group");
+    }
+
+    @Test
+    void cutsOffTornRecord() throws IOException {
+        DelayedActionStore store = new DelayedActionStore(timers, file, NO_SYNC);
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 1, 0, "first", SOON);
+        store.close();
+        long intact = Files.size(file);
+        store = new DelayedActionStore(timers, file, NO_SYNC);
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 2, 0, "second", SOON);
+        store.close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        store = new DelayedActionStore(timers, file, NO_SYNC);
+        assertEquals(1, store.pendingActions());
+        assertEquals(intact, Files.size(file));
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 3, 0, "third", SOON);
+        store.close();
+
+        store = new DelayedActionStore(timers, file, NO_SYNC);
+        assertEquals(2, store.pendingActions());
+        store.close();
+    }
+
+    @Test
+    void cutsOffCorruptedRecord() throws IOException {
+        DelayedActionStore store = new DelayedActionStore(timers, file, NO_SYNC);
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 1, 0, "first", SOON);
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 2, 0, "second", SOON);
+        store.close();
+        byte[] data = Files.readAllBytes(file);
+        data[data.length - 1] ^= 1;
+        Files.write(file, data);
+
+        store = new DelayedActionStore(timers, file, NO_SYNC);
+        assertEquals(1, store.pendingActions());
+        store.close();
+    }
+
+    @Test
+    void keepsUnknownKindThroughCompaction() throws IOException, InterruptedException {
+        DelayedActionStore store = new DelayedActionStore(timers, file, NO_SYNC);
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 1, 0, "first", SOON);
+        store.close();
+        ByteBuffer unknown = ByteBuffer.allocate(38).put((byte) 1).putLong(2).putLong(0).put((byte) 99)
+                .putLong(1).putLong(0).putInt(-1).flip();
+        byte[] unknownBytes = new byte[unknown.remaining()];
+        unknown.duplicate().get(unknownBytes);
+        appendRecord(unknown);
+
+        store = new DelayedActionStore(timers, file, Duration.ofMillis(10));
+        assertEquals(1, store.pendingActions());
+        DelayedAction last = null;
+        for (int i = 0; i < 1_200; i++) {
+            last = store.schedule(DelayedActionStore.Kind.DELETE_MESSAGE, 1, i, null, SOON);
+            store.cancel(last.getId());
+        }
+        awaitCompaction(1_200);
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 3, 0, "third", SOON);
+        store.close();
+
+        assertTrue(indexOf(Files.readAllBytes(file), unknownBytes) >= 0, "unknown record was compacted away");
+        Map<Long, DelayedActionStore.Action> restored = reopen(2);
+        assertEquals(List.of(1L, last.getId() + 1), restored.keySet().stream().sorted().toList());
+    }
+
+    @Test
+    void doesNotReuseIdsAfterCompactingToEmpty() throws IOException, InterruptedException {
+        DelayedActionStore store = new DelayedActionStore(timers, file, Duration.ofMillis(10));
+        long last = 0;
+        for (int i = 0; i < 1_200; i++) {
+            last = store.schedule(DelayedActionStore.Kind.DELETE_MESSAGE, 1, i, null, SOON).getId();
+            store.cancel(last);
+        }
+        awaitCompaction(1_200);
+        store.close();
+
+        store = new DelayedActionStore(timers, file, NO_SYNC);
+        assertEquals(0, store.pendingActions());
+        assertEquals(last + 1, store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 2, 0, "next", SOON).getId());
+        store.close();
+    }
+
+    @Test
+    void compactsCompletedActions() throws IOException, InterruptedException {
+        DelayedActionStore store = new DelayedActionStore(timers, file, Duration.ofMillis(10));
+        DelayedAction[] actions = new DelayedAction[1_200];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = store.schedule(DelayedActionStore.Kind.DELETE_MESSAGE, 1, i, null, SOON);
+        }
+        for (int i = 0; i < actions.length; i++) {
+            if (i % 12 != 0) {
+                store.cancel(actions[i].getId());
+            }
+        }
+        awaitCompaction(actions.length - 100);
+
+        store.schedule(DelayedActionStore.Kind.SEND_MESSAGE, 2, 0, "after compaction", SOON);
+        store.cancel(actions[0].getId());
+        store.close();
+
+        Map<Long, DelayedActionStore.Action> restored = reopen(100);
+        for (int i = 12; i < actions.length; i += 12) {
+            assertAction(restored.get(actions[i].getId()), DelayedActionStore.Kind.DELETE_MESSAGE, 1, i, null);
+        }
+        assertAction(restored.get(1_201L), DelayedActionStore.Kind.SEND_MESSAGE, 2, 0, "after compaction");
+    }
+
+    /**
+     * Opens the log again, runs the restored actions and returns them by their IDs.
+     */
+    private Map<Long, DelayedActionStore.Action> reopen(int expected) throws InterruptedException {
+        DelayedActionStore store = new DelayedActionStore(runningTimers, file, NO_SYNC);
+        assertEquals(expected, store.pendingActions());
+        Map<Long, DelayedActionStore.Action> performed = new ConcurrentHashMap<>();
+        for (DelayedActionStore.Kind kind : DelayedActionStore.Kind.values()) {
+            store.registerAsync(kind, action -> {
+                performed.put(action.id(), action);
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+        store.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.pendingActions() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, store.pendingActions(), "restored actions did not run");
+        assertEquals(expected, performed.size());
+        store.close();
+        return performed;
+    }
+
+    /**
+     * Waits until the log is shorter than the given number of scheduled deletions, each followed by its
+     * completion, take up: every record has an 8 byte header, a scheduled deletion 38 bytes of payload,
+     * a completion 9.
+     */
+    private void awaitCompaction(int cancelledDeletions) throws IOException, InterruptedException {
+        long appended = cancelledDeletions * (46L + 17L);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.size(file) >= appended && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Files.size(file) < appended, "log was not compacted");
+    }
+
+    private static int indexOf(byte[] data, byte[] part) {
+        for (int i = 0; i + part.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendRecord(ByteBuffer payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(new ByteBuffer[]{header, payload});
+        }
+    }
+
+    private static void assertAction(DelayedActionStore.Action action, DelayedActionStore.Kind kind, long chatId,
+                                     long target, String text) {
+        assertEquals(kind, action.kind());
+        assertEquals(chatId, action.chatId());
+        assertEquals(target, action.target());
+        assertEquals(text, action.text());
+    }
+}
@@ -0,0 +1,162 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalTest {
+    /**
+     * Segments of ten records each.
+     */
+    private static final int SEGMENT_BYTES = EventJournal.HEADER_BYTES + 10 * EventJournal.RECORD_BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rollsOverIntoNewSegments() throws IOException {
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, 100)) {
+            for (long i = 0; i < 25; i++) {
+                journal.record(EventJournal.Type.USER_ACTION, i, "action " + i % 3, null);
+            }
+        }
+
+        List<EventJournalReader.Entry> entries = read();
+        assertEquals(3, segmentCount());
+        assertEquals(25, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            EventJournalReader.Entry entry = entries.get(i);
+            assertEquals(EventJournal.Type.USER_ACTION, entry.type());
+            assertEquals((long) i, entry.userId());
+            assertEquals("action " + i % 3, entry.action());
+            assertNull(entry.details());
+        }
+    }
+
+    @Test
+    void keepsInlineTextTogetherAcrossRollover() throws IOException {
+        String longText = "x".repeat(5 * EventJournal.CONTINUATION_TEXT_BYTES);
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, 100)) {
+            for (int i = 0; i < 7; i++) {
+                journal.record(EventJournal.Type.BOT_ACTION, null, "tick", null);
+            }
+            // Needs six slots, so it moves to the next segment instead of being split.
+            journal.recordInline(EventJournal.Type.WARNING, null, "context", longText);
+            journal.recordInline(EventJournal.Type.WARNING, null, "context", "héllo");
+            journal.recordInline(EventJournal.Type.WARNING, null, "context", null);
+        }
+
+        List<EventJournalReader.Entry> entries = read();
+        assertEquals(2, segmentCount());
+        assertEquals(10, entries.size());
+        assertEquals(longText, entries.get(7).details());
+        assertEquals("héllo", entries.get(8).details());
+        assertNull(entries.get(9).details());
+        assertNull(entries.get(7).userId());
+    }
+
+    @Test
+    void truncatesInlineTextToSegment() throws IOException {
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, 100)) {
+            journal.recordInline(EventJournal.Type.WARNING, null, null, "y".repeat(1_000));
+        }
+
+        assertEquals("y".repeat(9 * EventJournal.CONTINUATION_TEXT_BYTES), read().get(0).details());
+    }
+
+    @Test
+    void reusesDictionaryAfterReopening() throws IOException {
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, 100)) {
+            journal.record(EventJournal.Type.USER_ACTION, 1L, "start", "first run");
+        }
+        long dictionaryBytes = Files.size(directory.resolve(EventJournal.DICTIONARY_FILE));
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, 100)) {
+            journal.record(EventJournal.Type.USER_ACTION, 2L, "start", "first run");
+        }
+
+        assertEquals(dictionaryBytes, Files.size(directory.resolve(EventJournal.DICTIONARY_FILE)));
+        List<EventJournalReader.Entry> entries = read();
+        assertEquals(List.of(1L, 2L), entries.stream().map(EventJournalReader.Entry::userId).toList());
+        assertTrue(entries.stream().allMatch(entry -> "start".equals(entry.action())
+                && "first run".equals(entry.details())));
+    }
+
+    @Test
+    void recordsUnknownStringsOnceDictionaryIsFull() throws IOException {
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES, 1)) {
+            journal.record(EventJournal.Type.USER_ACTION, 1L, "known", null);
+            journal.record(EventJournal.Type.USER_ACTION, 1L, "new", null);
+        }
+
+        List<EventJournalReader.Entry> entries = read();
+        assertEquals("known", entries.get(0).action());
+        assertEquals("<unknown #" + EventJournal.DICTIONARY_FULL + ">", entries.get(1).action());
+    }
+
+    @Test
+    void keepsEveryRecordOfConcurrentWriters() throws IOException, InterruptedException {
+        int threads = 4;
+        int perThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(directory, SEGMENT_BYTES * 10, 100)) {
+            for (int t = 0; t < threads; t++) {
+                long user = t;
+                Thread writer = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        journal.recordInline(EventJournal.Type.BOT_ACTION, user, "write", user + ":" + i);
+                    }
+                });
+                writer.start();
+                writers.add(writer);
+            }
+            start.countDown();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        List<EventJournalReader.Entry> entries = read();
+        assertEquals(threads * perThread, entries.size());
+        for (long t = 0; t < threads; t++) {
+            long user = t;
+            List<String> details = entries.stream().filter(entry -> entry.userId() == user)
+                    .map(EventJournalReader.Entry::details).collect(Collectors.toList());
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < perThread; i++) {
+                expected.add(user + ":" + i);
+            }
+            assertEquals(expected, details);
+        }
+    }
+
+    private List<EventJournalReader.Entry> read() throws IOException {
+        List<EventJournalReader.Entry> entries = new ArrayList<>();
+        new EventJournalReader(directory).read(entries::add);
+        return entries;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> EventJournal.SEGMENT_PATTERN.matcher(path.getFileName().toString()).matches())
+                    .count();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package service;
+
+import annotations.CallbackHandler;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HandlerInvokerTest {
+    private final DefaultAbsSender bot = new DefaultAbsSender(new DefaultBotOptions(), "0:test") {
+    };
+    private final MessageService messageService = new MessageService(bot);
+    private final KeyboardBuilder keyboardBuilder = new KeyboardBuilder(bot);
+    private final ChatService chatService = new ChatService(bot, null);
+    private final EventLogger eventLogger = new EventLogger();
+    private final Handlers handlers = new Handlers();
+
+    @Test
+    void routesIds() {
+        invoker("ids").invoke(10L, 20L);
+        assertEquals(List.of(10L, 20L), handlers.arguments);
+    }
+
+    @Test
+    void injectsServicesBetweenIds() {
+        invoker("services").invoke(10L, 20L);
+        assertEquals(List.of(10L, 20L, messageService, keyboardBuilder, chatService, eventLogger),
+                handlers.arguments);
+    }
+
+    @Test
+    void passesDefaultsToOtherParameters() {
+        invoker("defaults").invoke(10L, 20L);
+        assertEquals(Arrays.asList(null, 20L, null, 0, null), handlers.arguments);
+    }
+
+    @Test
+    void injectsTimerServiceOfMessageService() {
+        invoker("timer").invoke(10L, 20L);
+        assertSame(messageService.getTimerService(), handlers.arguments.get(0));
+    }
+
+    @Test
+    void discardsReturnValue() {
+        invoker("returning").invoke(10L, null);
+        assertEquals(Arrays.asList(10L, null), handlers.arguments);
+    }
+
+    @Test
+    void bindsCallbackParametersInOrderAfterIds() {
+        CallbackQuery query = query("page:3:bob:12345678901");
+        HandlerInvoker invoker = invoker("callback");
+        invoker.invoke(10L, 20L, CallbackParameters.parse(query, "page:".length()));
+
+        assertTrue(invoker.takesCallbackQuery());
+        assertEquals(List.of(10L, 20L, 3, keyboardBuilder, "bob", query, 12345678901L), handlers.arguments);
+    }
+
+    @Test
+    void leavesMissingOrMalformedCallbackParametersNull() {
+        CallbackQuery query = query("page:x");
+        invoker("callback").invoke(10L, 20L, CallbackParameters.parse(query, "page:".length()));
+
+        assertEquals(Arrays.asList(10L, 20L, null, keyboardBuilder, null, query, null), handlers.arguments);
+    }
+
+    @Test
+    void treatsLeadingLongsAsIdsInCallbacks() {
+        HandlerInvoker invoker = invoker("callbackIdsOnly");
+        invoker.invoke(10L, 20L, CallbackParameters.parse(query("id:7"), "id:".length()));
+
+        assertFalse(invoker.takesCallbackQuery());
+        assertEquals(List.of(10L, 20L, 7L), handlers.arguments);
+    }
+
+    private HandlerInvoker invoker(String name) {
+        Method method = Arrays.stream(Handlers.class.getDeclaredMethods())
+                .filter(m -> m.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        return HandlerInvoker.compile(handlers, method, messageService, keyboardBuilder, chatService, eventLogger);
+    }
+
+    private static CallbackQuery query(String data) {
+        CallbackQuery query = new CallbackQuery();
+        query.setData(data);
+        return query;
+    }
+
+    static class Handlers {
+        List<Object> arguments;
+
+        void ids(Long chatId, Long userId) {
+            arguments = List.of(chatId, userId);
+        }
+
+        void services(Long chatId, Long userId, MessageService messageService, KeyboardBuilder keyboardBuilder,
+                      ChatService chatService, EventLogger eventLogger) {
+            arguments = List.of(chatId, userId, messageService, keyboardBuilder, chatService, eventLogger);
+        }
+
+        void defaults(String chatId, Long userId, Long other, int count, String text) {
+            arguments = Arrays.asList(chatId, userId, other, count, text);
+        }
+
+        void timer(TimerService timerService) {
+            arguments = Arrays.asList(timerService);
+        }
+
+        String returning(Long chatId, Long userId) {
+            arguments = Arrays.asList(chatId, userId);
+            return "ignored";
+        }
+
+        @CallbackHandler("page:")
+        void callback(Long chatId, Long userId, Integer page, KeyboardBuilder keyboardBuilder, String name,
+                      CallbackQuery query, Long big) {
+            arguments = Arrays.asList(chatId, userId, page, keyboardBuilder, name, query, big);
+        }
+
+        @CallbackHandler("id:")
+        void callbackIdsOnly(Long chatId, Long userId, Long id) {
+            arguments = List.of(chatId, userId, id);
+        }
+    }
+}
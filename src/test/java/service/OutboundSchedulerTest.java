@@ -0,0 +1,124 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundSchedulerTest {
+    private static final long CHAT = 42;
+    private static final long OTHER_CHAT = 43;
+
+    private final OutboundScheduler scheduler = new OutboundScheduler(1_000, 1_000, 60_000, 2,
+            Executors.newFixedThreadPool(4));
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void retriesAfterRetryAfter() {
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        String result = scheduler.submit(CHAT, OutboundScheduler.Priority.INTERACTIVE, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw tooManyRequests(1);
+            }
+            return "sent";
+        }).join();
+
+        assertEquals("sent", result);
+        assertEquals(2, attempts.get());
+        assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void blocksOnlyTheRateLimitedChat() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> limited = scheduler.submit(CHAT, OutboundScheduler.Priority.INTERACTIVE, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw tooManyRequests(1);
+            }
+            sent.add("first");
+            return "first";
+        });
+        awaitRetryQueued(attempts);
+        CompletableFuture<String> sameChat = scheduler.submit(CHAT, OutboundScheduler.Priority.INTERACTIVE,
+                () -> add(sent, "second"));
+        CompletableFuture<String> edit = scheduler.submit(CHAT, OutboundScheduler.Priority.INTERACTIVE,
+                () -> add(sent, "edit"), false);
+        CompletableFuture<String> otherChat = scheduler.submit(OTHER_CHAT, OutboundScheduler.Priority.INTERACTIVE,
+                () -> add(sent, "other"));
+
+        otherChat.join();
+        assertEquals(List.of("other"), sent);
+        CompletableFuture.allOf(limited, sameChat, edit).join();
+        // The retried message keeps its place ahead of the later message to the same chat.
+        assertTrue(sent.indexOf("first") < sent.indexOf("second"), sent.toString());
+        assertEquals(4, sent.size());
+    }
+
+    @Test
+    void failsAfterMaxRetries() {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> future = scheduler.submit(CHAT, OutboundScheduler.Priority.INTERACTIVE, () -> {
+            attempts.incrementAndGet();
+            throw tooManyRequests(0);
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(TelegramApiRequestException.class, e.getCause());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryOtherErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> future = scheduler.submit(CHAT, OutboundScheduler.Priority.INTERACTIVE, () -> {
+            attempts.incrementAndGet();
+            throw new TelegramApiRequestException("Bad Request");
+        });
+
+        assertThrows(CompletionException.class, future::join);
+        assertEquals(1, attempts.get());
+    }
+
+    private static String add(List<String> sent, String message) {
+        sent.add(message);
+        return message;
+    }
+
+    /**
+     * Waits until the first attempt failed and the request is queued again, so its chat is blocked.
+     */
+    private void awaitRetryQueued(AtomicInteger attempts) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((attempts.get() < 1 || scheduler.pendingRequests() < 1) && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1, scheduler.pendingRequests());
+    }
+
+    private static TelegramApiRequestException tooManyRequests(int retryAfter) throws Exception {
+        ApiResponse<?> response = new ObjectMapper().readValue("{\"ok\":false,\"error_code\":429,"
+                + "\"description\":\"Too Many Requests\",\"parameters\":{\"retry_after\":" + retryAfter + "}}",
+                ApiResponse.class);
+        return new TelegramApiRequestException("Too Many Requests", response);
+    }
+}
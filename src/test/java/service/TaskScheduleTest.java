@@ -0,0 +1,117 @@
+package service;
+
+import annotations.ScheduledTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskScheduleTest {
+    private static final long T0 = Instant.parse("2024-05-10T10:00:00Z").toEpochMilli();
+
+    @ScheduledTask(intervalSeconds = 60, initialDelaySeconds = 5)
+    void everyMinute() {
+    }
+
+    @ScheduledTask(cron = "*/15 * * * *", zone = "UTC")
+    void quarterHourly() {
+    }
+
+    @ScheduledTask(cron = "30 1 * * *", zone = "America/New_York")
+    void nightly() {
+    }
+
+    @ScheduledTask(intervalSeconds = 60, timeBudgetSeconds = 10)
+    void budgeted() {
+    }
+
+    @ScheduledTask
+    void unscheduled() {
+    }
+
+    @ScheduledTask(intervalSeconds = 60, cron = "* * * * *")
+    void overscheduled() {
+    }
+
+    @ScheduledTask(cron = "0 0 30 2 * *")
+    void malformed() {
+    }
+
+    @ScheduledTask(intervalSeconds = 60, jitterSeconds = -1)
+    void negativeJitter() {
+    }
+
+    @ParameterizedTest(name = "due +{0}s, now +{1}s")
+    @CsvSource({
+            "0,    0,    60",
+            "0,    59,   60",
+            "0,    60,   120",
+            "0,    61,   120",
+            "0,    3599, 3600",
+            "60,   30,   120",
+    })
+    void intervalNextDue(long dueSeconds, long nowSeconds, long expectedSeconds) {
+        TaskSchedule schedule = schedule("everyMinute");
+        assertEquals(T0 + expectedSeconds * 1000,
+                schedule.nextDue(T0 + dueSeconds * 1000, T0 + nowSeconds * 1000));
+    }
+
+    @ParameterizedTest(name = "due {0}, now {1}")
+    @CsvSource({
+            "2024-05-10T10:00:00Z, 2024-05-10T10:00:01Z, 2024-05-10T10:15:00Z",
+            "2024-05-10T10:00:00Z, 2024-05-10T10:14:59Z, 2024-05-10T10:15:00Z",
+            "2024-05-10T10:00:00Z, 2024-05-10T10:15:00Z, 2024-05-10T10:30:00Z",
+            "2024-05-10T10:00:00Z, 2024-05-10T13:07:00Z, 2024-05-10T13:15:00Z",
+            "2024-05-10T23:45:00Z, 2024-05-10T23:45:00Z, 2024-05-11T00:00:00Z",
+    })
+    void cronNextDue(Instant due, Instant now, Instant expected) {
+        TaskSchedule schedule = schedule("quarterHourly");
+        assertEquals(expected.toEpochMilli(), schedule.nextDue(due.toEpochMilli(), now.toEpochMilli()));
+    }
+
+    @Test
+    void cronRunsOnceOnRepeatedHour() {
+        TaskSchedule schedule = schedule("nightly");
+        long first = schedule.firstDue(Instant.parse("2024-11-03T04:00:00Z").toEpochMilli());
+        long second = schedule.nextDue(first, first);
+
+        assertEquals(Instant.parse("2024-11-03T05:30:00Z").toEpochMilli(), first);
+        assertEquals(Instant.parse("2024-11-04T06:30:00Z").toEpochMilli(), second);
+    }
+
+    @Test
+    void firstDue() {
+        assertEquals(T0 + 5_000, schedule("everyMinute").firstDue(T0));
+        assertEquals(T0 + 15 * 60_000, schedule("quarterHourly").firstDue(T0));
+    }
+
+    @Test
+    void budget() {
+        assertEquals(Duration.ofSeconds(40), schedule("everyMinute").budget(T0, T0 + 40_000));
+        assertEquals(Duration.ofSeconds(10), schedule("budgeted").budget(T0, T0 + 40_000));
+        assertEquals(Duration.ofMinutes(1), schedule("everyMinute").defaultBudget());
+        assertEquals(Duration.ofMinutes(1), schedule("quarterHourly").defaultBudget());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"unscheduled", "overscheduled", "malformed", "negativeJitter"})
+    void rejectsInvalidSchedules(String method) {
+        assertThrows(IllegalArgumentException.class, () -> schedule(method));
+    }
+
+    private static TaskSchedule schedule(String method) {
+        try {
+            ScheduledTask annotation = TaskScheduleTest.class.getDeclaredMethod(method)
+                    .getAnnotation(ScheduledTask.class);
+            return TaskSchedule.of(annotation, method);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
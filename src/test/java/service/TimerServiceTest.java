@@ -0,0 +1,109 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerServiceTest {
+    private final TimerService timers = new TimerService(Duration.ofMillis(5), 16, Runnable::run, new EventLogger());
+
+    @AfterEach
+    void tearDown() {
+        timers.shutdown();
+    }
+
+    @Test
+    void firesAfterDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        TimerService.Timeout timeout = timers.schedule(fired::countDown, Duration.ofMillis(30));
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertFalse(timeout.isCancelled());
+        assertEquals(0, timers.pendingTimers());
+    }
+
+    @Test
+    void firesTimersBeyondOneTurnOfTheWheel() throws InterruptedException {
+        // The wheel spans 16 ticks of 5 ms; this timer shares its bucket with ticks on the way.
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timers.schedule(() -> {
+            firedAt.set(System.nanoTime());
+            fired.countDown();
+        }, Duration.ofMillis(200));
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void cancelledTimerDoesNotFire() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        TimerService.Timeout timeout = timers.schedule(fired::countDown, Duration.ofMillis(20));
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timers.pendingTimers());
+        assertFalse(fired.await(100, TimeUnit.MILLISECONDS));
+        assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    void eachTimerEitherFiresOrIsCancelled() throws InterruptedException {
+        int count = 20_000;
+        AtomicIntegerArray runs = new AtomicIntegerArray(count);
+        TimerService.Timeout[] timeouts = new TimerService.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            timeouts[i] = timers.schedule(() -> runs.incrementAndGet(index),
+                    ThreadLocalRandom.current().nextLong(50), TimeUnit.MILLISECONDS);
+        }
+        boolean[] cancelled = new boolean[count];
+        Thread canceller = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                cancelled[i] = timeouts[i].cancel();
+                if (i % 1_000 == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                }
+            }
+        });
+        canceller.start();
+        canceller.join();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (timers.pendingTimers() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, timers.pendingTimers());
+        for (int i = 0; i < count; i++) {
+            assertEquals(cancelled[i] ? 0 : 1, runs.get(i), "timer " + i);
+            assertEquals(cancelled[i], timeouts[i].isCancelled());
+            assertEquals(!cancelled[i], timeouts[i].isExpired());
+        }
+    }
+
+    @Test
+    void rejectsTimersAfterShutdown() {
+        timers.shutdown();
+        assertThrows(IllegalStateException.class, () -> timers.schedule(() -> {
+        }, Duration.ZERO));
+    }
+}
@@ -0,0 +1,130 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpdateCheckpointTest {
+    private static final int TRACKED_UPDATES = 1 << 16;
+
+    @TempDir
+    Path directory;
+
+    private UpdateCheckpoint checkpoint;
+
+    @BeforeEach
+    void setUp() {
+        checkpoint = new UpdateCheckpoint(directory.resolve("checkpoint"), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkpoint.close();
+    }
+
+    @Test
+    void watermarkWaitsForOldestUpdate() {
+        assertEquals(-1, checkpoint.processedUpTo());
+        checkpoint.begin(10);
+        checkpoint.begin(11);
+        checkpoint.begin(12);
+        checkpoint.complete(12);
+        checkpoint.complete(11);
+        assertEquals(9, checkpoint.processedUpTo());
+
+        checkpoint.complete(10);
+        assertEquals(12, checkpoint.processedUpTo());
+    }
+
+    @Test
+    void watermarkSkipsGapsInIds() {
+        checkpoint.begin(10);
+        checkpoint.begin(500);
+        checkpoint.complete(10);
+        assertEquals(499, checkpoint.processedUpTo());
+
+        checkpoint.complete(500);
+        checkpoint.begin(9_000);
+        assertEquals(8_999, checkpoint.processedUpTo());
+    }
+
+    @Test
+    void ignoresUnknownCompletions() {
+        checkpoint.begin(10);
+        checkpoint.complete(9);
+        checkpoint.complete(11);
+        assertEquals(9, checkpoint.processedUpTo());
+    }
+
+    @Test
+    void givesUpOnUpdatesOverwrittenByRingWrap() {
+        checkpoint.begin(10);
+        checkpoint.begin(20);
+        checkpoint.begin(10 + TRACKED_UPDATES);
+        // 10 is given up on; 20 is still tracked and holds the watermark back.
+        assertEquals(19, checkpoint.processedUpTo());
+
+        checkpoint.complete(20);
+        assertEquals(9 + TRACKED_UPDATES, checkpoint.processedUpTo());
+        checkpoint.complete(10 + TRACKED_UPDATES);
+        assertEquals(10 + TRACKED_UPDATES, checkpoint.processedUpTo());
+    }
+
+    @Test
+    void ignoresUpdatesTooFarBehind() {
+        checkpoint.begin(100_000);
+        checkpoint.begin(100_000 - TRACKED_UPDATES);
+        assertEquals(99_999, checkpoint.processedUpTo());
+        checkpoint.complete(100_000);
+        assertEquals(100_000, checkpoint.processedUpTo());
+    }
+
+    @Test
+    void resumesFromSavedCheckpoint() {
+        checkpoint.begin(41);
+        checkpoint.begin(42);
+        checkpoint.complete(41);
+        checkpoint.close();
+
+        checkpoint = new UpdateCheckpoint(directory.resolve("checkpoint"), Duration.ofHours(1));
+        assertEquals(41, checkpoint.savedUpdateId().orElseThrow());
+        assertEquals(41, checkpoint.processedUpTo());
+    }
+
+    @Test
+    void agreesWithExactModel() {
+        Random random = new Random(7);
+        TreeSet<Long> inFlight = new TreeSet<>();
+        List<Long> pending = new ArrayList<>();
+        long latest = -1;
+        long next = random.nextInt(100_000);
+        for (int i = 0; i < 200_000; i++) {
+            if (pending.isEmpty() || random.nextInt(3) > 0) {
+                next += 1 + (random.nextInt(50) == 0 ? random.nextInt(5_000) : 0);
+                checkpoint.begin(next);
+                long dropped = next - TRACKED_UPDATES;
+                inFlight.headSet(dropped, true).clear();
+                pending.removeIf(id -> id <= dropped);
+                inFlight.add(next);
+                pending.add(next);
+                latest = next;
+            } else {
+                long id = pending.remove(random.nextInt(Math.min(pending.size(), 200)));
+                checkpoint.complete(id);
+                inFlight.remove(id);
+            }
+            long expected = inFlight.isEmpty() ? latest : inFlight.first() - 1;
+            assertEquals(expected, checkpoint.processedUpTo(), "after " + i + " steps");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpdateDeduplicatorTest {
+
+    @Test
+    void detectsDuplicatesAcrossWindowWrap() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(128);
+        for (long id = 100; id < 160; id++) {
+            assertTrue(deduplicator.markSeen(id));
+        }
+        for (long id = 100; id < 160; id++) {
+            assertFalse(deduplicator.markSeen(id), "update " + id);
+        }
+        assertEquals(60, deduplicator.acceptedUpdates());
+        assertEquals(60, deduplicator.duplicatesDropped());
+    }
+
+    @Test
+    void clearsWrappedBitsWhenAdvancing() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(128);
+        for (long id = 200; id <= 250; id++) {
+            deduplicator.markSeen(id);
+        }
+        // Advancing to 330 clears the bits of 251 to 329, wrapping past the end of the window, where
+        // 328 and 329 share the bits of 200 and 201.
+        assertTrue(deduplicator.markSeen(330));
+        assertTrue(deduplicator.markSeen(328));
+        assertTrue(deduplicator.markSeen(329));
+        assertTrue(deduplicator.markSeen(251));
+        for (long id = 203; id <= 250; id++) {
+            assertFalse(deduplicator.markSeen(id), "update " + id);
+        }
+    }
+
+    @Test
+    void restartsBelowWindow() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        assertTrue(deduplicator.markSeen(1_000));
+        assertTrue(deduplicator.markSeen(5));
+        assertTrue(deduplicator.markSeen(6));
+        assertFalse(deduplicator.markSeen(5));
+        assertTrue(deduplicator.markSeen(1_000));
+    }
+
+    @Test
+    void seedsProcessedUpdates() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        deduplicator.seedProcessedUpTo(500);
+
+        assertFalse(deduplicator.markSeen(500));
+        assertFalse(deduplicator.markSeen(437));
+        assertTrue(deduplicator.markSeen(501));
+        deduplicator.seedProcessedUpTo(900);
+        assertTrue(deduplicator.markSeen(502));
+    }
+
+    @Test
+    void agreesWithExactWindowModel() {
+        Random random = new Random(7);
+        int window = 192;
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(window);
+        Set<Long> seen = new HashSet<>();
+        long highest = Long.MIN_VALUE;
+        long center = -500;
+        for (int i = 0; i < 100_000; i++) {
+            center += random.nextInt(100) == 0 ? random.nextInt(2 * window) - window / 2 : random.nextInt(3);
+            long id = center - random.nextInt(window + 8);
+
+            boolean expected;
+            if (highest == Long.MIN_VALUE || id <= highest - window) {
+                seen.clear();
+                highest = id;
+                expected = seen.add(id);
+            } else {
+                if (id > highest) {
+                    highest = id;
+                    long low = highest - window;
+                    seen.removeIf(old -> old <= low);
+                }
+                expected = seen.add(id);
+            }
+            assertEquals(expected, deduplicator.markSeen(id), "update " + id + " after " + i + " updates");
+        }
+    }
+}
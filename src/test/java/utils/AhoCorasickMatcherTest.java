@@ -0,0 +1,103 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AhoCorasickMatcherTest {
+
+    @Test
+    void followsFailureLinkIntoOtherPattern() {
+        AhoCorasickMatcher<String> matcher = AhoCorasickMatcher.build(List.of("abcd", "bc"), List.of("abcd", "bc"));
+
+        // After "abc" the text leaves the first pattern, and the failure link continues in "bc".
+        assertEquals("bc", matcher.find("abce"));
+        assertEquals("abcd", matcher.find("xabcd"));
+    }
+
+    @Test
+    void findsPatternsReachedOnlyThroughFailureLinks() {
+        AhoCorasickMatcher<String> matcher = AhoCorasickMatcher.build(List.of("hers", "she", "he"),
+                List.of("hers", "she", "he"));
+
+        assertEquals("hers", matcher.find("ushers"));
+        assertEquals("she", matcher.find("ushe"));
+        assertEquals("he", matcher.find("ahe"));
+        assertNull(matcher.find("shr"));
+    }
+
+    @Test
+    void followsChainOfFailureLinks() {
+        AhoCorasickMatcher<String> matcher = AhoCorasickMatcher.build(List.of("aaab", "ab"), List.of("aaab", "ab"));
+
+        assertEquals("ab", matcher.find("aab"));
+        assertEquals("aaab", matcher.find("aaaab"));
+    }
+
+    @Test
+    void prefersHighestRankAnywhereInText() {
+        AhoCorasickMatcher<Integer> matcher = AhoCorasickMatcher.build(List.of("spam", "buy"), List.of(0, 1));
+
+        assertEquals(0, matcher.find("buy cheap spam"));
+        assertEquals(1, matcher.find("buy now"));
+    }
+
+    @Test
+    void ignoresCase() {
+        AhoCorasickMatcher<Integer> matcher = AhoCorasickMatcher.build(List.of("Hello"), List.of(0));
+
+        assertEquals(0, matcher.find("say HELLO there"));
+        assertNull(matcher.find("help"));
+    }
+
+    @Test
+    void emptyPatternMatchesEveryText() {
+        AhoCorasickMatcher<Integer> matcher = AhoCorasickMatcher.build(List.of("x", ""), List.of(0, 1));
+
+        assertEquals(1, matcher.find(""));
+        assertEquals(0, matcher.find("axb"));
+    }
+
+    @Test
+    void agreesWithNaiveSearch() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            List<Integer> ranks = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                patterns.add(randomText(random, 1 + random.nextInt(4)));
+                ranks.add(i);
+            }
+            AhoCorasickMatcher<Integer> matcher = AhoCorasickMatcher.build(patterns, ranks);
+            for (int i = 0; i < 20; i++) {
+                String text = randomText(random, random.nextInt(20));
+                assertEquals(naiveFind(patterns, text), matcher.find(text), patterns + " in " + text);
+            }
+        }
+    }
+
+    private static Integer naiveFind(List<String> patterns, String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < patterns.size(); i++) {
+            if (lower.contains(patterns.get(i).toLowerCase(Locale.ROOT))) {
+                return i;
+            }
+        }
+        return null;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            char c = (char) ('a' + random.nextInt(3));
+            text.append(random.nextBoolean() ? c : Character.toUpperCase(c));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CronExpressionTest {
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    @ParameterizedTest(name = "{0} after {1}")
+    @CsvSource(delimiter = '|', value = {
+            "* * * * *           | 2024-05-10T10:15:30Z | 2024-05-10T10:16Z",
+            "* * * * *           | 2024-05-10T10:15:00Z | 2024-05-10T10:16Z",
+            "*/15 * * * *        | 2024-05-10T10:15:00Z | 2024-05-10T10:30Z",
+            "*/15 * * * *        | 2024-05-10T10:50:00Z | 2024-05-10T11:00Z",
+            "0 9 * * *           | 2024-05-10T09:00:00Z | 2024-05-11T09:00Z",
+            "0 9 * * MON-FRI     | 2024-05-10T09:00:00Z | 2024-05-13T09:00Z",
+            "30 8-18/2 * * *     | 2024-05-10T13:00:00Z | 2024-05-10T14:30Z",
+            "30 8-18/2 * * *     | 2024-05-10T18:30:00Z | 2024-05-11T08:30Z",
+            "0 0 1,15 * *        | 2024-05-02T00:00:00Z | 2024-05-15T00:00Z",
+            "0 0 31 * *          | 2024-04-01T00:00:00Z | 2024-05-31T00:00Z",
+            "0 0 29 2 *          | 2024-03-01T00:00:00Z | 2028-02-29T00:00Z",
+            "0 12 * JAN,jul *    | 2024-02-01T00:00:00Z | 2024-07-01T12:00Z",
+            "0 0 * * 0           | 2024-05-10T00:00:00Z | 2024-05-12T00:00Z",
+            "0 0 * * 7           | 2024-05-10T00:00:00Z | 2024-05-12T00:00Z",
+            "0 0 13 * FRI        | 2024-05-01T00:00:00Z | 2024-05-03T00:00Z",
+            "0 0 13 * FRI        | 2024-05-10T00:00:00Z | 2024-05-13T00:00Z",
+            "@hourly             | 2024-05-10T10:15:00Z | 2024-05-10T11:00Z",
+            "@daily              | 2024-12-31T10:15:00Z | 2025-01-01T00:00Z",
+            "@weekly             | 2024-05-10T10:15:00Z | 2024-05-12T00:00Z",
+            "@monthly            | 2024-12-15T00:00:00Z | 2025-01-01T00:00Z",
+            "@yearly             | 2024-01-01T00:00:00Z | 2025-01-01T00:00Z",
+    })
+    void nextMatchingTime(String expression, ZonedDateTime after, ZonedDateTime expected) {
+        assertEquals(expected, CronExpression.parse(expression).next(after));
+    }
+
+    @ParameterizedTest(name = "{0} after {1}")
+    @CsvSource(delimiter = '|', value = {
+            // Clocks spring forward from 02:00 to 03:00 on 2024-03-10: 02:30 does not exist that day.
+            "30 2 * * *  | 2024-03-09T02:30-05:00 | 2024-03-11T02:30-04:00",
+            "0 * * * *   | 2024-03-10T01:00-05:00 | 2024-03-10T03:00-04:00",
+            // Clocks fall back from 02:00 to 01:00 on 2024-11-03: 01:00 to 01:59 occur twice.
+            "30 1 * * *  | 2024-11-02T01:30-04:00 | 2024-11-03T01:30-04:00",
+            "30 1 * * *  | 2024-11-03T01:30-04:00 | 2024-11-04T01:30-05:00",
+            "30 1 * * *  | 2024-11-03T01:10-05:00 | 2024-11-03T01:30-05:00",
+            "0 * * * *   | 2024-11-03T01:00-04:00 | 2024-11-03T02:00-05:00",
+            "* * * * *   | 2024-11-03T01:59-04:00 | 2024-11-03T02:00-05:00",
+    })
+    void daylightSavingTransitions(String expression, String after, String expected) {
+        ZonedDateTime from = ZonedDateTime.parse(after).withZoneSameInstant(NEW_YORK);
+        assertEquals(ZonedDateTime.parse(expected).toInstant(),
+                CronExpression.parse(expression).next(from).toInstant());
+    }
+
+    @Test
+    void repeatedHourMatchesOnce() {
+        CronExpression cron = CronExpression.parse("30 1 * * *");
+        ZonedDateTime first = cron.next(ZonedDateTime.parse("2024-11-03T00:00-04:00").withZoneSameInstant(NEW_YORK));
+        ZonedDateTime second = cron.next(first);
+
+        assertEquals("2024-11-03T01:30-04:00", first.toOffsetDateTime().toString());
+        assertEquals("2024-11-04T01:30-05:00", second.toOffsetDateTime().toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "* * * *", "* * * * * *", "60 * * * *", "* 24 * * *", "* * 0 * *",
+            "* * * 13 *", "* * * * 8", "5-1 * * * *", "*/0 * * * *", "a * * * *", "* * * FOO *"})
+    void rejectsMalformedExpressions(String expression) {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse(expression));
+    }
+
+    @Test
+    void failsForExpressionsThatNeverMatch() {
+        CronExpression cron = CronExpression.parse("0 0 30 2 *");
+        assertThrows(IllegalStateException.class, () -> cron.next(ZonedDateTime.parse("2024-01-01T00:00Z")));
+    }
+}
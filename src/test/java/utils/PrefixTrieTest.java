@@ -0,0 +1,59 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrefixTrieTest {
+    private static final PrefixTrie<String> TRIE = PrefixTrie.build(
+            List.of("page:", "page:next:", "p", "pa", "set:", "Set:"),
+            List.of("page", "next", "p", "pa", "set", "Set"));
+
+    @ParameterizedTest(name = "\"{0}\"")
+    @CsvSource({
+            "page:3,          page",
+            "page:,           page",
+            "page:next:4,     next",
+            "page:next,       page",
+            "pag,             pa",
+            "pa,              pa",
+            "p,               p",
+            "set:1,           set",
+            "Set:1,           Set",
+            "SET:1,           ",
+            "x,               ",
+            "'',              ",
+    })
+    void findsLongestPrefix(String text, String expected) {
+        assertEquals(expected, TRIE.findLongestPrefix(text));
+    }
+
+    @Test
+    void emptyPrefixMatchesEveryText() {
+        PrefixTrie<Integer> trie = PrefixTrie.build(List.of("", "ab"), List.of(0, 1));
+
+        assertEquals(0, trie.findLongestPrefix(""));
+        assertEquals(0, trie.findLongestPrefix("a"));
+        assertEquals(1, trie.findLongestPrefix("abc"));
+    }
+
+    @Test
+    void emptyTrieMatchesNothing() {
+        PrefixTrie<Integer> trie = PrefixTrie.build(List.of(), List.of());
+
+        assertNull(trie.findLongestPrefix("anything"));
+        assertEquals(0, trie.size());
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> PrefixTrie.build(List.of("a", "a"), List.of(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> PrefixTrie.build(List.of("a"), List.of()));
+    }
+}
@@ -0,0 +1,112 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // Timestamps in the tests wrap around, as nanoTime timestamps may.
+    private static final long T0 = Long.MAX_VALUE - 2 * SECOND;
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 1, 1, TimeUnit.SECONDS, T0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.nanosUntilAvailable(T0));
+            bucket.consume(T0);
+        }
+        assertNanos(SECOND, bucket.nanosUntilAvailable(T0));
+    }
+
+    @Test
+    void refillsAtFixedRate() {
+        TokenBucket bucket = new TokenBucket(1, 20, 1, TimeUnit.MINUTES, T0);
+        bucket.consume(T0);
+
+        assertNanos(3 * SECOND, bucket.nanosUntilAvailable(T0));
+        assertNanos(SECOND, bucket.nanosUntilAvailable(T0 + 2 * SECOND));
+        assertEquals(0, bucket.nanosUntilAvailable(T0 + 3 * SECOND));
+    }
+
+    @Test
+    void refillsFractionsOfTokens() {
+        TokenBucket bucket = new TokenBucket(2, 4, 1, TimeUnit.SECONDS, T0);
+        bucket.consume(T0);
+        bucket.consume(T0);
+
+        long quarter = SECOND / 4;
+        assertNanos(quarter / 2, bucket.nanosUntilAvailable(T0 + quarter / 2));
+        bucket.consume(T0 + quarter);
+        assertNanos(quarter, bucket.nanosUntilAvailable(T0 + quarter));
+    }
+
+    @Test
+    void neverExceedsCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 1, 1, TimeUnit.SECONDS, T0);
+        bucket.consume(T0);
+        long later = T0 + 4 * SECOND;
+        bucket.consume(later);
+        bucket.consume(later);
+
+        assertNanos(SECOND, bucket.nanosUntilAvailable(later));
+    }
+
+    @Test
+    void blockStopsRefillAndLeavesOneToken() {
+        TokenBucket bucket = new TokenBucket(5, 1, 1, TimeUnit.SECONDS, T0);
+        for (int i = 0; i < 5; i++) {
+            bucket.consume(T0);
+        }
+        bucket.blockUntil(T0 + 3 * SECOND, T0);
+
+        assertNanos(3 * SECOND, bucket.nanosUntilAvailable(T0));
+        assertNanos(3 * SECOND, bucket.nanosUntilUnblocked(T0));
+        long unblocked = T0 + 3 * SECOND;
+        assertEquals(0, bucket.nanosUntilAvailable(unblocked));
+        bucket.consume(unblocked);
+        // No tokens were regained during the block, so no burst follows it.
+        assertNanos(SECOND, bucket.nanosUntilAvailable(unblocked));
+    }
+
+    @Test
+    void keepsLongestBlock() {
+        TokenBucket bucket = new TokenBucket(1, 1, 1, TimeUnit.SECONDS, T0);
+        bucket.blockUntil(T0 + 3 * SECOND, T0);
+        bucket.blockUntil(T0 + SECOND, T0);
+
+        assertNanos(3 * SECOND, bucket.nanosUntilUnblocked(T0));
+    }
+
+    @Test
+    void isIdleOnlyWhenFullAndUnblocked() {
+        TokenBucket bucket = new TokenBucket(2, 1, 1, TimeUnit.SECONDS, T0);
+        assertTrue(bucket.isIdle(T0));
+        bucket.consume(T0);
+        assertFalse(bucket.isIdle(T0));
+        assertTrue(bucket.isIdle(T0 + SECOND));
+
+        bucket.blockUntil(T0 + 3 * SECOND, T0 + SECOND);
+        assertFalse(bucket.isIdle(T0 + 2 * SECOND));
+        assertTrue(bucket.isIdle(T0 + 4 * SECOND));
+    }
+
+    @Test
+    void rejectsInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0.5, 1, 1, TimeUnit.SECONDS, T0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, 1, TimeUnit.SECONDS, T0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 1, 0, TimeUnit.SECONDS, T0));
+    }
+
+    /**
+     * Waits are rounded up from fractional tokens, so they may be a nanosecond longer than the exact value.
+     */
+    private static void assertNanos(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + 1, "expected " + expected + " ns but was " + actual);
+    }
+}